@@ -18,18 +18,38 @@
 package com.jeff_media.jefflib;
 
 import com.jeff_media.jefflib.exceptions.UtilityClassInstantiationException;
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import com.jeff_media.jefflib.internal.blocktracker.RegionFileStorage;
+import com.jeff_media.jefflib.internal.blocktracker.SectionBits;
+import com.jeff_media.jefflib.internal.blocktracker.TrackedChunk;
+import com.jeff_media.jefflib.internal.blocktracker.TrackedChunkCache;
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
-import lombok.experimental.UtilityClass;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.Getter;
+import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
 import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
+import org.bukkit.World;
 import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.PistonMoveReaction;
 import org.bukkit.persistence.PersistentDataContainer;
-import org.bukkit.persistence.PersistentDataHolder;
 import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.plugin.Plugin;
+import org.bukkit.util.BoundingBox;
+import org.bukkit.util.NumberConversions;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
@@ -39,6 +59,13 @@ import org.jetbrains.annotations.NotNull;
  * Uses the chunk's PersistentDataContainer to store information about which blocks have been placed
  * by the player. You can track all block types or only certain ones.
  * <p>
+ * The way the data is stored can be changed using {@link #setStorageFormat(StorageFormat)}. When using
+ * {@link StorageFormat#SECTIONS}, data stored in the {@link StorageFormat#LEGACY} format is still read transparently,
+ * and can be converted using {@link #migrate(Chunk)} or {@link #setMigrateOnChunkLoad(boolean)}.
+ * <p>
+ * While the listener is registered, the data of loaded chunks is kept in memory and only written back to the chunk
+ * when the chunk is unloaded or the world is saved. See {@link #setCacheEnabled(boolean)}.
+ * <p>
  * <b>Important: Tracking blocks requires registering the listener using {@link JeffLib#registerBlockTracker()}</b>
  */
 public final class BlockTracker {
@@ -49,7 +76,20 @@ public final class BlockTracker {
 
     private static final Plugin plugin = JeffLib.getPlugin();
     private static final NamespacedKey PLAYER_PLACED_TAG = new NamespacedKey(plugin, "playerplaced");
+    private static final String SECTION_KEY_PREFIX = "playerplaced.section.";
+    private static final int SECTION_KEY_OFFSET = 128;
+    private static final NamespacedKey[] SECTION_KEYS = new NamespacedKey[SECTION_KEY_OFFSET * 2];
     private static final Collection<Material> TRACKED_TYPES = new HashSet<>();
+    private static StorageFormat storageFormat = StorageFormat.LEGACY;
+    private static boolean migrateOnChunkLoad = false;
+    private static final TrackedChunkCache CACHE = new TrackedChunkCache();
+    private static volatile boolean cacheEnabled = false;
+    private static RegionFileStorage regionStorage;
+    private static final ExecutorService QUERY_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "JeffLib BlockTracker Query");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     /**
      * Adds a new material to the block tracker
@@ -111,6 +151,100 @@ public final class BlockTracker {
         TRACKED_TYPES.removeAll(types);
     }
 
+    /**
+     * Gets the format that is used to store newly tracked blocks
+     *
+     * @return Currently used storage format
+     */
+    public static StorageFormat getStorageFormat() {
+        return storageFormat;
+    }
+
+    /**
+     * Sets the format that is used to store newly tracked blocks. Defaults to {@link StorageFormat#LEGACY}.
+     * <p>
+     * When switching to {@link StorageFormat#SECTIONS}, blocks that have been stored using the legacy format are still
+     * detected, so no data is lost. While the cache is enabled, chunks are written in the new format whenever they
+     * contain changes, which also converts their legacy data.
+     * <p>
+     * When switching to {@link StorageFormat#REGION_FILE}, data that is still stored in a chunk's PersistentDataContainer
+     * is moved into the region files the next time the chunk is loaded. Switching away from {@link StorageFormat#REGION_FILE}
+     * only moves the data of currently cached chunks back.
+     *
+     * @param format Storage format to use
+     */
+    public static void setStorageFormat(@NotNull final StorageFormat format) {
+        if (format == storageFormat) return;
+        // Cached chunks might not be stored in the new format yet
+        CACHE.markAllDirty();
+        storageFormat = format;
+    }
+
+    /**
+     * Gets whether chunks are automatically migrated to {@link StorageFormat#SECTIONS} when they are loaded
+     *
+     * @return true when chunks are migrated on load, otherwise false
+     * @see #setMigrateOnChunkLoad(boolean)
+     */
+    public static boolean isMigrateOnChunkLoad() {
+        return migrateOnChunkLoad;
+    }
+
+    /**
+     * Sets whether chunks that still contain data in the {@link StorageFormat#LEGACY} format should be migrated to
+     * {@link StorageFormat#SECTIONS} when they are loaded. This only has an effect while the storage format is set to
+     * {@link StorageFormat#SECTIONS}. Defaults to false.
+     *
+     * @param migrate Whether chunks should be migrated on load
+     * @see #migrate(Chunk)
+     */
+    public static void setMigrateOnChunkLoad(final boolean migrate) {
+        migrateOnChunkLoad = migrate;
+    }
+
+    /**
+     * Gets whether the data of loaded chunks is cached in memory
+     *
+     * @return true when the cache is enabled, otherwise false
+     */
+    public static boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    /**
+     * Sets whether the data of loaded chunks should be cached in memory. While enabled, changes are only written to the
+     * chunk's PersistentDataContainer when the chunk is unloaded, when the world is saved, or when calling {@link #flushAll()}.
+     * <p>
+     * The cache is enabled automatically by {@link JeffLib#registerBlockTracker()}. It should not be enabled without
+     * registering the listener, as otherwise nothing would be written back. Disabling the cache writes all pending changes.
+     *
+     * @param enabled Whether the cache should be enabled
+     */
+    public static void setCacheEnabled(final boolean enabled) {
+        if (!enabled && cacheEnabled) {
+            flushAll();
+            CACHE.clear();
+        }
+        cacheEnabled = enabled;
+    }
+
+    /**
+     * Gets the current statistics of the chunk cache
+     *
+     * @return Snapshot of the cache statistics
+     */
+    @NotNull
+    public static CacheStats getCacheStats() {
+        return new CacheStats(CACHE.size(), CACHE.getHits(), CACHE.getMisses(), CACHE.getFlushes(), CACHE.getFlushedChunks(), CACHE.getFlushNanos());
+    }
+
+    /**
+     * Resets all counters of the chunk cache
+     */
+    public static void resetCacheStats() {
+        CACHE.resetStats();
+    }
+
     /**
      * Checks whether a given block has been placed by a player
      *
@@ -118,29 +252,105 @@ public final class BlockTracker {
      * @return true when the block was player-placed and tracked, otherwise false
      */
     public static boolean isPlayerPlacedBlock(final Block block) {
-        final PersistentDataContainer playerPlacedPDC = getPlayerPlacedPDC(block.getChunk());
-        return playerPlacedPDC.has(getKey(block), PersistentDataType.BYTE);
+        if (cacheEnabled) {
+            return getTrackedChunk(block).get(block.getX(), block.getY(), block.getZ());
+        }
+        if (storageFormat == StorageFormat.REGION_FILE) {
+            return readChunk(block.getChunk()).get(block.getX(), block.getY(), block.getZ());
+        }
+        final PersistentDataContainer pdc = block.getChunk().getPersistentDataContainer();
+        if (storageFormat == StorageFormat.SECTIONS) {
+            final long[] bits = pdc.get(getSectionKey(block.getY() >> 4), PersistentDataType.LONG_ARRAY);
+            if (SectionBits.isValid(bits) && SectionBits.get(bits, SectionBits.index(block.getX(), block.getY(), block.getZ()))) {
+                return true;
+            }
+            if (!hasLegacyData(pdc)) return false;
+        }
+        return getPlayerPlacedPDC(pdc).has(getKey(block.getX(), block.getY(), block.getZ()), PersistentDataType.BYTE);
     }
 
-    private static PersistentDataContainer getPlayerPlacedPDC(final PersistentDataHolder chunk) {
-        final PersistentDataContainer pdc = chunk.getPersistentDataContainer();
+    /**
+     * Gets the cached data of the block's chunk, loading it from the chunk if it's not cached yet
+     */
+    private static TrackedChunk getTrackedChunk(final Block block) {
+        return getTrackedChunk(block.getWorld(), block.getX() >> 4, block.getZ() >> 4);
+    }
+
+    private static TrackedChunk getTrackedChunk(final World world, final int chunkX, final int chunkZ) {
+        TrackedChunk tracked = CACHE.get(world, chunkX, chunkZ);
+        if (tracked == null) {
+            tracked = readChunk(world.getChunkAt(chunkX, chunkZ));
+            CACHE.put(world, chunkX, chunkZ, tracked);
+        }
+        return tracked;
+    }
+
+    private static boolean hasLegacyData(final PersistentDataContainer pdc) {
+        return pdc.has(PLAYER_PLACED_TAG, PersistentDataType.TAG_CONTAINER);
+    }
+
+    private static PersistentDataContainer getPlayerPlacedPDC(final PersistentDataContainer pdc) {
         return pdc.getOrDefault(PLAYER_PLACED_TAG, PersistentDataType.TAG_CONTAINER, pdc.getAdapterContext().newPersistentDataContainer());
     }
 
+    /**
+     * Gets the cached {@link NamespacedKey} used to store the bitset of the given chunk section
+     *
+     * @param sectionY Y coordinate of the section, i.e. block Y coordinate divided by 16
+     * @return NamespacedKey for the section
+     */
+    private static NamespacedKey getSectionKey(final int sectionY) {
+        final int index = sectionY + SECTION_KEY_OFFSET;
+        if (index < 0 || index >= SECTION_KEYS.length) {
+            return new NamespacedKey(plugin, SECTION_KEY_PREFIX + sectionY);
+        }
+        NamespacedKey key = SECTION_KEYS[index];
+        if (key == null) {
+            key = new NamespacedKey(plugin, SECTION_KEY_PREFIX + sectionY);
+            SECTION_KEYS[index] = key;
+        }
+        return key;
+    }
+
+    /**
+     * Parses the section Y coordinate from a section key, or returns null if it's not a section key
+     */
+    private static Integer getSectionY(final NamespacedKey key) {
+        if (!key.getNamespace().equals(PLAYER_PLACED_TAG.getNamespace())) return null;
+        if (!key.getKey().startsWith(SECTION_KEY_PREFIX)) return null;
+        try {
+            return Integer.parseInt(key.getKey().substring(SECTION_KEY_PREFIX.length()));
+        } catch (final NumberFormatException ignored) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses the block coordinates from a key of the legacy format, or returns null if it's not a valid key
+     */
+    private static int[] getLegacyCoordinates(final NamespacedKey key) {
+        if (!key.getNamespace().equals(PLAYER_PLACED_TAG.getNamespace())) return null;
+        final String[] parts = key.getKey().split("/");
+        if (parts.length != 3) return null;
+        try {
+            return new int[] {Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2])};
+        } catch (final NumberFormatException ignored) {
+            return null;
+        }
+    }
+
     /**
      * Creates a {@link NamespacedKey} for a block based on its chunk location
      *
-     * @param block Block to create the key for
      * @return NamespacedKey for the block
      */
-    @Contract("_ -> new")
-    private static NamespacedKey getKey(@NotNull final Block block) {
-        final int x = block.getX() & 0x000F;
-        final int y = block.getY();
-        final int z = block.getZ() & 0x000F;
+    @Contract("_, _, _ -> new")
+    private static NamespacedKey getKey(final int blockX, final int blockY, final int blockZ) {
+        final int x = blockX & 0x000F;
+        final int z = blockZ & 0x000F;
 
         //noinspection HardcodedFileSeparator
-        return new NamespacedKey(plugin, String.format("%d/%d/%d", x, y, z));
+        return new NamespacedKey(plugin, String.format("%d/%d/%d", x, blockY, z));
     }
 
     /**
@@ -151,15 +361,24 @@ public final class BlockTracker {
      */
     @NotNull
     public static Collection<Block> getPlayerPlacedBlocks(final Chunk chunk) {
+        final TrackedChunk tracked;
+        if (cacheEnabled) {
+            tracked = getTrackedChunk(chunk.getWorld(), chunk.getX(), chunk.getZ());
+        } else {
+            tracked = readChunk(chunk);
+        }
         final Collection<Block> blocks = new HashSet<>();
-        final PersistentDataContainer pdc = getPlayerPlacedPDC(chunk);
-        for (final NamespacedKey key : pdc.getKeys()) {
-            if (!key.getNamespace().equals(PLAYER_PLACED_TAG.getNamespace())) continue;
-            final String[] parts = key.getKey().split("/");
-            final int x = Integer.parseInt(parts[0]);
-            final int y = Integer.parseInt(parts[1]);
-            final int z = Integer.parseInt(parts[2]);
-            blocks.add(chunk.getBlock(x, y, z));
+        for (int sectionY = tracked.getMinSection(); sectionY < tracked.getMinSection() + tracked.getSectionCount(); sectionY++) {
+            final long[] bits = tracked.getSection(sectionY);
+            if (bits == null) continue;
+            for (int word = 0; word < bits.length; word++) {
+                long remaining = bits[word];
+                while (remaining != 0) {
+                    final int index = word << 6 | Long.numberOfTrailingZeros(remaining);
+                    remaining &= remaining - 1;
+                    blocks.add(chunk.getBlock(index & 0xF, (sectionY << 4) + (index >>> 8), (index >>> 4) & 0xF));
+                }
+            }
         }
         return blocks;
     }
@@ -171,9 +390,294 @@ public final class BlockTracker {
      * @param playerPlaced Whether the block was player placed
      */
     public static void setPlayerPlacedBlock(final Block block, final boolean playerPlaced) {
+        if (cacheEnabled) {
+            getTrackedChunk(block).set(block.getX(), block.getY(), block.getZ(), playerPlaced);
+            return;
+        }
+        if (storageFormat == StorageFormat.REGION_FILE) {
+            final Chunk chunk = block.getChunk();
+            final TrackedChunk tracked = readChunk(chunk);
+            tracked.set(block.getX(), block.getY(), block.getZ(), playerPlaced);
+            if (tracked.isDirty()) {
+                writeChunk(chunk, tracked, storageFormat);
+            }
+            return;
+        }
         final PersistentDataContainer pdc = block.getChunk().getPersistentDataContainer();
-        final PersistentDataContainer playerPlacedPDC = getPlayerPlacedPDC(block.getChunk());
-        final NamespacedKey key = getKey(block);
+        if (storageFormat == StorageFormat.SECTIONS) {
+            setSectionBit(pdc, block.getX(), block.getY(), block.getZ(), playerPlaced);
+            if (!playerPlaced && hasLegacyData(pdc)) {
+                setLegacy(pdc, getKey(block.getX(), block.getY(), block.getZ()), false);
+            }
+            return;
+        }
+        setLegacy(pdc, getKey(block.getX(), block.getY(), block.getZ()), playerPlaced);
+    }
+
+    /**
+     * Sets whether a player placed the given blocks. The blocks are grouped by chunk, so that every affected chunk is
+     * only read and written once.
+     *
+     * @param blocks       Blocks
+     * @param playerPlaced Whether the blocks were player placed
+     */
+    public static void setPlayerPlacedBlocks(@NotNull final Collection<Block> blocks, final boolean playerPlaced) {
+        if (blocks.isEmpty()) return;
+        final Map<World, Batch> batches = new HashMap<>();
+        for (final Block block : blocks) {
+            batches.computeIfAbsent(block.getWorld(), Batch::new).set(block.getX(), block.getY(), block.getZ(), playerPlaced);
+        }
+        for (final Batch batch : batches.values()) {
+            batch.commit();
+        }
+    }
+
+    /**
+     * Moves the tracking information of the given blocks by one block into the given direction, e.g. when they are
+     * pushed or pulled by a piston. Blocks that the piston breaks instead of moving them ({@link PistonMoveReaction#BREAK},
+     * e.g. crops or torches) are no longer tracked afterwards. Every affected chunk is only read and written once.
+     *
+     * @param blocks    Blocks that are moved
+     * @param direction Direction the blocks are moved to
+     */
+    public static void moveBlocks(@NotNull final Collection<Block> blocks, @NotNull final BlockFace direction) {
+        if (blocks.isEmpty()) return;
+        final Map<World, Batch> batches = new HashMap<>();
+        final Collection<Block> moved = new ArrayList<>();
+        final Collection<Block> broken = new ArrayList<>();
+        for (final Block block : blocks) {
+            final Batch batch = batches.computeIfAbsent(block.getWorld(), Batch::new);
+            if (!batch.get(block.getX(), block.getY(), block.getZ())) continue;
+            if (block.getPistonMoveReaction() == PistonMoveReaction.BREAK) {
+                broken.add(block);
+            } else {
+                moved.add(block);
+            }
+        }
+        if (moved.isEmpty() && broken.isEmpty()) return;
+        for (final Block block : broken) {
+            batches.get(block.getWorld()).set(block.getX(), block.getY(), block.getZ(), false);
+        }
+        for (final Block block : moved) {
+            batches.get(block.getWorld()).set(block.getX(), block.getY(), block.getZ(), false);
+        }
+        for (final Block block : moved) {
+            batches.get(block.getWorld()).set(block.getX() + direction.getModX(), block.getY() + direction.getModY(), block.getZ() + direction.getModZ(), true);
+        }
+        for (final Batch batch : batches.values()) {
+            batch.commit();
+        }
+    }
+
+    /**
+     * Counts all player placed blocks inside the given area. This includes all blocks that overlap the bounding box,
+     * e.g. {@link BoundingBox#of(Block, Block)} includes both given blocks.
+     * <p>
+     * Only loaded chunks are checked, unless using {@link StorageFormat#REGION_FILE}, which can also read unloaded chunks.
+     *
+     * @param world World
+     * @param box   Area to check
+     * @return Amount of player placed blocks inside the area
+     */
+    public static long countPlayerPlaced(@NotNull final World world, @NotNull final BoundingBox box) {
+        final BlockRange range = BlockRange.of(world, box);
+        long count = 0;
+        for (final ChunkRef ref : collectChunks(world, range)) {
+            final TrackedChunk tracked = ref.resolve(world);
+            if (tracked == null) continue;
+            count += tracked.count(range.getMinX(ref.x), range.minY, range.getMinZ(ref.z), range.getMaxX(ref.x), range.maxY, range.getMaxZ(ref.z));
+        }
+        return count;
+    }
+
+    /**
+     * Calls the visitor for every player placed block inside the given area, without creating any {@link Block} objects.
+     *
+     * @param world   World
+     * @param box     Area to check
+     * @param visitor Visitor that is called with the coordinates of every player placed block
+     * @see #countPlayerPlaced(World, BoundingBox)
+     */
+    public static void forEachPlayerPlaced(@NotNull final World world, @NotNull final BoundingBox box, @NotNull final PositionVisitor visitor) {
+        final BlockRange range = BlockRange.of(world, box);
+        for (final ChunkRef ref : collectChunks(world, range)) {
+            final TrackedChunk tracked = ref.resolve(world);
+            if (tracked == null) continue;
+            tracked.forEach(range.getMinX(ref.x), range.minY, range.getMinZ(ref.z), range.getMaxX(ref.x), range.maxY, range.getMaxZ(ref.z), ref.x, ref.z, visitor);
+        }
+    }
+
+    /**
+     * Counts all player placed blocks inside the given area asynchronously, using JeffLib's own BlockTracker query
+     * thread. Must be called from the main thread.
+     *
+     * @param world World
+     * @param box   Area to check
+     * @return CompletableFuture that completes with the amount of player placed blocks inside the area
+     * @see #countPlayerPlacedAsync(World, BoundingBox, Executor)
+     */
+    @NotNull
+    public static CompletableFuture<Long> countPlayerPlacedAsync(@NotNull final World world, @NotNull final BoundingBox box) {
+        return countPlayerPlacedAsync(world, box, QUERY_EXECUTOR);
+    }
+
+    /**
+     * Counts all player placed blocks inside the given area asynchronously. Must be called from the main thread.
+     * <p>
+     * Only a snapshot of the loaded chunks' data is taken on the main thread. Decoding it and reading unloaded chunks
+     * from region files is done using the given executor. Changes done after calling this method are not included in
+     * the result.
+     *
+     * @param world    World
+     * @param box      Area to check
+     * @param executor Executor used to read and count the blocks
+     * @return CompletableFuture that completes with the amount of player placed blocks inside the area
+     * @see #countPlayerPlaced(World, BoundingBox)
+     */
+    @NotNull
+    public static CompletableFuture<Long> countPlayerPlacedAsync(@NotNull final World world, @NotNull final BoundingBox box, @NotNull final Executor executor) {
+        final BlockRange range = BlockRange.of(world, box);
+        final List<ChunkRef> chunks = collectChunkSnapshots(world, range);
+        return CompletableFuture.supplyAsync(() -> {
+            long count = 0;
+            for (final ChunkRef ref : chunks) {
+                final TrackedChunk tracked = ref.resolve(world);
+                if (tracked == null) continue;
+                count += tracked.count(range.getMinX(ref.x), range.minY, range.getMinZ(ref.z), range.getMaxX(ref.x), range.maxY, range.getMaxZ(ref.z));
+            }
+            return count;
+        }, executor);
+    }
+
+    /**
+     * Calls the visitor for every player placed block inside the given area asynchronously, using JeffLib's own
+     * BlockTracker query thread. Must be called from the main thread.
+     *
+     * @param world   World
+     * @param box     Area to check
+     * @param visitor Visitor that is called with the coordinates of every player placed block
+     * @return CompletableFuture that completes once all blocks have been visited
+     * @see #forEachPlayerPlacedAsync(World, BoundingBox, PositionVisitor, Executor)
+     */
+    @NotNull
+    public static CompletableFuture<Void> forEachPlayerPlacedAsync(@NotNull final World world, @NotNull final BoundingBox box, @NotNull final PositionVisitor visitor) {
+        return forEachPlayerPlacedAsync(world, box, visitor, QUERY_EXECUTOR);
+    }
+
+    /**
+     * Calls the visitor for every player placed block inside the given area asynchronously. Must be called from the
+     * main thread. The visitor is called using the given executor.
+     *
+     * @param world    World
+     * @param box      Area to check
+     * @param visitor  Visitor that is called with the coordinates of every player placed block
+     * @param executor Executor used to read the blocks and call the visitor
+     * @return CompletableFuture that completes once all blocks have been visited
+     * @see #countPlayerPlacedAsync(World, BoundingBox, Executor)
+     */
+    @NotNull
+    public static CompletableFuture<Void> forEachPlayerPlacedAsync(@NotNull final World world, @NotNull final BoundingBox box, @NotNull final PositionVisitor visitor, @NotNull final Executor executor) {
+        final BlockRange range = BlockRange.of(world, box);
+        final List<ChunkRef> chunks = collectChunkSnapshots(world, range);
+        return CompletableFuture.runAsync(() -> {
+            for (final ChunkRef ref : chunks) {
+                final TrackedChunk tracked = ref.resolve(world);
+                if (tracked == null) continue;
+                tracked.forEach(range.getMinX(ref.x), range.minY, range.getMinZ(ref.z), range.getMaxX(ref.x), range.maxY, range.getMaxZ(ref.z), ref.x, ref.z, visitor);
+            }
+        }, executor);
+    }
+
+    /**
+     * Marks all blocks inside the given area as not player placed. Every affected chunk is only written once.
+     *
+     * @param world World
+     * @param box   Area to clear
+     * @return Amount of blocks that were player placed before
+     * @see #countPlayerPlaced(World, BoundingBox)
+     */
+    public static long clearPlayerPlaced(@NotNull final World world, @NotNull final BoundingBox box) {
+        final BlockRange range = BlockRange.of(world, box);
+        long cleared = 0;
+        for (final ChunkRef ref : collectChunks(world, range)) {
+            final TrackedChunk tracked = ref.resolve(world);
+            if (tracked == null) continue;
+            cleared += tracked.clear(range.getMinX(ref.x), range.minY, range.getMinZ(ref.z), range.getMaxX(ref.x), range.maxY, range.getMaxZ(ref.z));
+            if (!tracked.isDirty() || (ref.loaded && cacheEnabled)) continue;
+            if (ref.loaded) {
+                writeChunk(world.getChunkAt(ref.x, ref.z), tracked, storageFormat);
+            } else {
+                getRegionStorage().write(world.getUID(), ref.x, ref.z, tracked);
+            }
+        }
+        return cleared;
+    }
+
+    /**
+     * Gets the data of all chunks overlapping the given range. Loaded chunks are read immediately, unloaded chunks
+     * are only included when using {@link StorageFormat#REGION_FILE} and are read when resolved.
+     */
+    private static List<ChunkRef> collectChunks(final World world, final BlockRange range) {
+        final List<ChunkRef> chunks = new ArrayList<>();
+        if (range.isEmpty()) return chunks;
+        for (int chunkX = range.minX >> 4; chunkX <= range.maxX >> 4; chunkX++) {
+            for (int chunkZ = range.minZ >> 4; chunkZ <= range.maxZ >> 4; chunkZ++) {
+                if (world.isChunkLoaded(chunkX, chunkZ)) {
+                    final TrackedChunk tracked = cacheEnabled ? getTrackedChunk(world, chunkX, chunkZ) : readChunk(world.getChunkAt(chunkX, chunkZ));
+                    chunks.add(new ChunkRef(chunkX, chunkZ, tracked));
+                } else if (storageFormat == StorageFormat.REGION_FILE) {
+                    chunks.add(new ChunkRef(chunkX, chunkZ, null, true, TrackedChunk.getMinSection(world), TrackedChunk.getSectionCount(world)));
+                }
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Like {@link #collectChunks(World, BlockRange)}, but only takes snapshots that can safely be resolved on another
+     * thread. Cached chunks are copied, the data of other loaded chunks is only decoded when resolved.
+     */
+    private static List<ChunkRef> collectChunkSnapshots(final World world, final BlockRange range) {
+        final List<ChunkRef> chunks = new ArrayList<>();
+        if (range.isEmpty()) return chunks;
+        final boolean regionFile = storageFormat == StorageFormat.REGION_FILE;
+        final int minSection = TrackedChunk.getMinSection(world);
+        final int sectionCount = TrackedChunk.getSectionCount(world);
+        for (int chunkX = range.minX >> 4; chunkX <= range.maxX >> 4; chunkX++) {
+            for (int chunkZ = range.minZ >> 4; chunkZ <= range.maxZ >> 4; chunkZ++) {
+                if (world.isChunkLoaded(chunkX, chunkZ)) {
+                    final TrackedChunk cached = cacheEnabled ? CACHE.peek(world, chunkX, chunkZ) : null;
+                    if (cached != null) {
+                        chunks.add(new ChunkRef(chunkX, chunkZ, cached.copy()));
+                    } else {
+                        final PdcSnapshot pdc = new PdcSnapshot(world.getChunkAt(chunkX, chunkZ).getPersistentDataContainer());
+                        chunks.add(new ChunkRef(chunkX, chunkZ, pdc, regionFile, minSection, sectionCount));
+                    }
+                } else if (regionFile) {
+                    chunks.add(new ChunkRef(chunkX, chunkZ, null, true, minSection, sectionCount));
+                }
+            }
+        }
+        return chunks;
+    }
+
+    private static void setSectionBit(final PersistentDataContainer pdc, final int x, final int y, final int z, final boolean value) {
+        final NamespacedKey sectionKey = getSectionKey(y >> 4);
+        long[] bits = pdc.get(sectionKey, PersistentDataType.LONG_ARRAY);
+        if (!SectionBits.isValid(bits)) {
+            if (!value) return;
+            bits = new long[SectionBits.LONGS_PER_SECTION];
+        }
+        if (!SectionBits.set(bits, SectionBits.index(x, y, z), value)) return;
+        if (SectionBits.isEmpty(bits)) {
+            pdc.remove(sectionKey);
+        } else {
+            pdc.set(sectionKey, PersistentDataType.LONG_ARRAY, bits);
+        }
+    }
+
+    private static void setLegacy(final PersistentDataContainer pdc, final NamespacedKey key, final boolean playerPlaced) {
+        final PersistentDataContainer playerPlacedPDC = getPlayerPlacedPDC(pdc);
         if (playerPlaced) {
             playerPlacedPDC.set(key, PersistentDataType.BYTE, (byte) 1);
         } else {
@@ -182,4 +686,494 @@ public final class BlockTracker {
         pdc.set(PLAYER_PLACED_TAG, PersistentDataType.TAG_CONTAINER, playerPlacedPDC);
     }
 
+    private static synchronized RegionFileStorage getRegionStorage() {
+        if (regionStorage == null) {
+            regionStorage = new RegionFileStorage(new File(plugin.getDataFolder(), "blocktracker"));
+        }
+        return regionStorage;
+    }
+
+    /**
+     * Reads the tracked blocks of a chunk from the currently used storage
+     */
+    private static TrackedChunk readChunk(final Chunk chunk) {
+        if (storageFormat != StorageFormat.REGION_FILE) {
+            return readChunkPdc(chunk);
+        }
+        final World world = chunk.getWorld();
+        final TrackedChunk stored = getRegionStorage().read(world.getUID(), chunk.getX(), chunk.getZ(), TrackedChunk.getMinSection(world), TrackedChunk.getSectionCount(world));
+        if (stored != null) return stored;
+        // Data that is still stored inside the chunk is moved to the region file when the chunk is written the next time
+        final TrackedChunk imported = readChunkPdc(chunk);
+        imported.setDirty(!imported.isEmpty());
+        return imported;
+    }
+
+    /**
+     * Reads the tracked blocks of a chunk from its PersistentDataContainer, regardless of the format it's stored in
+     */
+    private static TrackedChunk readChunkPdc(final Chunk chunk) {
+        final PdcSnapshot snapshot = new PdcSnapshot(chunk.getPersistentDataContainer());
+        final TrackedChunk tracked = snapshot.decode(TrackedChunk.getMinSection(chunk.getWorld()), TrackedChunk.getSectionCount(chunk.getWorld()));
+        if (snapshot.legacyKeys != null) {
+            // Chunks are only converted to the new format once they're written for another reason, unless migrating is enabled
+            tracked.setDirty(storageFormat == StorageFormat.SECTIONS && migrateOnChunkLoad);
+        }
+        return tracked;
+    }
+
+    /**
+     * Writes the tracked blocks using the given format, and removes data stored inside the chunk's
+     * PersistentDataContainer in any other format
+     */
+    private static void writeChunk(final Chunk chunk, final TrackedChunk tracked, final StorageFormat format) {
+        final PersistentDataContainer pdc = chunk.getPersistentDataContainer();
+        if (format == StorageFormat.REGION_FILE) {
+            getRegionStorage().write(chunk.getWorld().getUID(), chunk.getX(), chunk.getZ(), tracked);
+            for (int sectionY = tracked.getMinSection(); sectionY < tracked.getMinSection() + tracked.getSectionCount(); sectionY++) {
+                pdc.remove(getSectionKey(sectionY));
+            }
+            pdc.remove(PLAYER_PLACED_TAG);
+        } else if (format == StorageFormat.SECTIONS) {
+            for (int sectionY = tracked.getMinSection(); sectionY < tracked.getMinSection() + tracked.getSectionCount(); sectionY++) {
+                final long[] bits = tracked.getSection(sectionY);
+                if (bits == null || SectionBits.isEmpty(bits)) {
+                    pdc.remove(getSectionKey(sectionY));
+                } else {
+                    pdc.set(getSectionKey(sectionY), PersistentDataType.LONG_ARRAY, bits.clone());
+                }
+            }
+            pdc.remove(PLAYER_PLACED_TAG);
+        } else {
+            final PersistentDataContainer legacy = pdc.getAdapterContext().newPersistentDataContainer();
+            for (int sectionY = tracked.getMinSection(); sectionY < tracked.getMinSection() + tracked.getSectionCount(); sectionY++) {
+                final long[] bits = tracked.getSection(sectionY);
+                pdc.remove(getSectionKey(sectionY));
+                if (bits == null) continue;
+                for (int word = 0; word < bits.length; word++) {
+                    long remaining = bits[word];
+                    while (remaining != 0) {
+                        final int index = word << 6 | Long.numberOfTrailingZeros(remaining);
+                        remaining &= remaining - 1;
+                        legacy.set(getKey(index & 0xF, (sectionY << 4) + (index >>> 8), (index >>> 4) & 0xF), PersistentDataType.BYTE, (byte) 1);
+                    }
+                }
+            }
+            if (legacy.isEmpty()) {
+                pdc.remove(PLAYER_PLACED_TAG);
+            } else {
+                pdc.set(PLAYER_PLACED_TAG, PersistentDataType.TAG_CONTAINER, legacy);
+            }
+        }
+        tracked.setDirty(false);
+    }
+
+    /**
+     * Converts all data of the given chunk that is stored in the {@link StorageFormat#LEGACY} format into the
+     * {@link StorageFormat#SECTIONS} format. This happens regardless of the currently set storage format.
+     *
+     * @param chunk Chunk to migrate
+     * @return true when legacy data has been found and migrated, otherwise false
+     */
+    public static boolean migrate(@NotNull final Chunk chunk) {
+        final PersistentDataContainer pdc = chunk.getPersistentDataContainer();
+        final TrackedChunk cached = cacheEnabled ? CACHE.peek(chunk.getWorld(), chunk.getX(), chunk.getZ()) : null;
+        if (cached != null) {
+            final boolean hadLegacyData = hasLegacyData(pdc);
+            writeChunk(chunk, cached, StorageFormat.SECTIONS);
+            return hadLegacyData;
+        }
+        if (!hasLegacyData(pdc)) return false;
+        final PersistentDataContainer legacy = getPlayerPlacedPDC(pdc);
+        final Map<Integer, long[]> sections = new HashMap<>();
+        for (final NamespacedKey key : legacy.getKeys()) {
+            final int[] coordinates = getLegacyCoordinates(key);
+            if (coordinates == null) continue;
+            final long[] bits = sections.computeIfAbsent(coordinates[1] >> 4, sectionY -> {
+                final long[] existing = pdc.get(getSectionKey(sectionY), PersistentDataType.LONG_ARRAY);
+                return SectionBits.isValid(existing) ? existing : new long[SectionBits.LONGS_PER_SECTION];
+            });
+            SectionBits.set(bits, SectionBits.index(coordinates[0], coordinates[1], coordinates[2]), true);
+        }
+        for (final Map.Entry<Integer, long[]> entry : sections.entrySet()) {
+            pdc.set(getSectionKey(entry.getKey()), PersistentDataType.LONG_ARRAY, entry.getValue());
+        }
+        pdc.remove(PLAYER_PLACED_TAG);
+        return true;
+    }
+
+    /**
+     * Loads a chunk into the cache
+     *
+     * @internal
+     */
+    @Internal
+    public static void loadChunk(@NotNull final Chunk chunk) {
+        if (!cacheEnabled) {
+            if (storageFormat == StorageFormat.SECTIONS && migrateOnChunkLoad) {
+                migrate(chunk);
+            }
+            return;
+        }
+        CACHE.put(chunk.getWorld(), chunk.getX(), chunk.getZ(), readChunk(chunk));
+    }
+
+    /**
+     * Writes pending changes of a chunk and removes it from the cache
+     *
+     * @internal
+     */
+    @Internal
+    public static void unloadChunk(@NotNull final Chunk chunk) {
+        final TrackedChunk tracked = CACHE.remove(chunk.getWorld(), chunk.getX(), chunk.getZ());
+        if (tracked == null || !tracked.isDirty()) return;
+        final long start = System.nanoTime();
+        writeChunk(chunk, tracked, storageFormat);
+        CACHE.recordFlush(1, System.nanoTime() - start);
+    }
+
+    /**
+     * Writes all pending changes of cached chunks in the given world into the chunks' PersistentDataContainers.
+     * This is called automatically when the world is saved.
+     *
+     * @param world World to flush
+     */
+    public static void flush(@NotNull final World world) {
+        final long start = System.nanoTime();
+        int written = 0;
+        for (final Map.Entry<Long, TrackedChunk> entry : CACHE.getChunks(world).entrySet()) {
+            final TrackedChunk tracked = entry.getValue();
+            if (!tracked.isDirty()) continue;
+            final int chunkX = TrackedChunkCache.getChunkX(entry.getKey());
+            final int chunkZ = TrackedChunkCache.getChunkZ(entry.getKey());
+            if (!world.isChunkLoaded(chunkX, chunkZ)) continue;
+            writeChunk(world.getChunkAt(chunkX, chunkZ), tracked, storageFormat);
+            written++;
+        }
+        if (written > 0) {
+            CACHE.recordFlush(written, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Writes all pending changes of all cached chunks into the chunks' PersistentDataContainers
+     */
+    public static void flushAll() {
+        for (final UUID uid : CACHE.getWorlds()) {
+            final World world = Bukkit.getWorld(uid);
+            if (world == null) {
+                CACHE.removeWorld(uid);
+                continue;
+            }
+            flush(world);
+        }
+    }
+
+    /**
+     * Writes all pending changes and waits until all data has been written to disk. This is called before the plugin's
+     * onDisable, so changes done afterwards are written to disk immediately instead of being queued.
+     *
+     * @internal
+     */
+    @Internal
+    public static void shutdown() {
+        setCacheEnabled(false);
+        synchronized (BlockTracker.class) {
+            if (regionStorage != null) {
+                regionStorage.close();
+            }
+        }
+    }
+
+    /**
+     * Writes all pending changes of a world and removes its chunks from the cache
+     *
+     * @internal
+     */
+    @Internal
+    public static void unloadWorld(@NotNull final World world) {
+        flush(world);
+        CACHE.removeWorld(world.getUID());
+    }
+
+    /**
+     * Receives the coordinates of player placed blocks
+     *
+     * @see #forEachPlayerPlaced(World, BoundingBox, PositionVisitor)
+     */
+    @FunctionalInterface
+    public interface PositionVisitor {
+        /**
+         * Called for every player placed block
+         *
+         * @param x X coordinate of the block
+         * @param y Y coordinate of the block
+         * @param z Z coordinate of the block
+         */
+        void visit(int x, int y, int z);
+    }
+
+    /**
+     * Inclusive block coordinates of an area, clamped to the world's height
+     */
+    private static final class BlockRange {
+
+        private final int minX;
+        private final int minY;
+        private final int minZ;
+        private final int maxX;
+        private final int maxY;
+        private final int maxZ;
+
+        private BlockRange(final int minX, final int minY, final int minZ, final int maxX, final int maxY, final int maxZ) {
+            this.minX = minX;
+            this.minY = minY;
+            this.minZ = minZ;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.maxZ = maxZ;
+        }
+
+        private static BlockRange of(final World world, final BoundingBox box) {
+            final int minY = Math.max(NumberConversions.floor(box.getMinY()), WorldUtils.getWorldMinHeight(world));
+            final int maxY = Math.min(getMaxBlock(box.getMinY(), box.getMaxY()), world.getMaxHeight() - 1);
+            return new BlockRange(NumberConversions.floor(box.getMinX()), minY, NumberConversions.floor(box.getMinZ()),
+                    getMaxBlock(box.getMinX(), box.getMaxX()), maxY, getMaxBlock(box.getMinZ(), box.getMaxZ()));
+        }
+
+        /**
+         * The box's max corner is exclusive, so that {@link BoundingBox#of(Block)} only contains that one block
+         */
+        private static int getMaxBlock(final double min, final double max) {
+            return Math.max(NumberConversions.floor(min), NumberConversions.ceil(max) - 1);
+        }
+
+        private boolean isEmpty() {
+            return minX > maxX || minY > maxY || minZ > maxZ;
+        }
+
+        private int getMinX(final int chunkX) {
+            return Math.max(minX, chunkX << 4) & 0xF;
+        }
+
+        private int getMaxX(final int chunkX) {
+            return Math.min(maxX, (chunkX << 4) + 15) & 0xF;
+        }
+
+        private int getMinZ(final int chunkZ) {
+            return Math.max(minZ, chunkZ << 4) & 0xF;
+        }
+
+        private int getMaxZ(final int chunkZ) {
+            return Math.min(maxZ, (chunkZ << 4) + 15) & 0xF;
+        }
+    }
+
+    /**
+     * A chunk inside an area. Unloaded chunks are read from the region files when resolved.
+     */
+    private static final class ChunkRef {
+
+        private final int x;
+        private final int z;
+        private final boolean loaded;
+        private final TrackedChunk tracked;
+        private final PdcSnapshot pdc;
+        private final boolean regionFile;
+        private final int minSection;
+        private final int sectionCount;
+
+        private ChunkRef(final int x, final int z, final TrackedChunk tracked) {
+            this.x = x;
+            this.z = z;
+            this.loaded = true;
+            this.tracked = tracked;
+            this.pdc = null;
+            this.regionFile = false;
+            this.minSection = tracked.getMinSection();
+            this.sectionCount = tracked.getSectionCount();
+        }
+
+        private ChunkRef(final int x, final int z, final PdcSnapshot pdc, final boolean regionFile, final int minSection, final int sectionCount) {
+            this.x = x;
+            this.z = z;
+            this.loaded = pdc != null;
+            this.tracked = null;
+            this.pdc = pdc;
+            this.regionFile = regionFile;
+            this.minSection = minSection;
+            this.sectionCount = sectionCount;
+        }
+
+        private TrackedChunk resolve(final World world) {
+            if (tracked != null) return tracked;
+            if (regionFile) {
+                final TrackedChunk stored = getRegionStorage().read(world.getUID(), x, z, minSection, sectionCount);
+                if (stored != null || pdc == null) return stored;
+            }
+            return pdc.decode(minSection, sectionCount);
+        }
+    }
+
+    /**
+     * Copy of the BlockTracker data stored inside a chunk's PersistentDataContainer, that can be decoded on any thread
+     */
+    private static final class PdcSnapshot {
+
+        private final Map<Integer, long[]> sections = new HashMap<>();
+        private final List<NamespacedKey> legacyKeys;
+
+        private PdcSnapshot(final PersistentDataContainer pdc) {
+            for (final NamespacedKey key : pdc.getKeys()) {
+                final Integer sectionY = getSectionY(key);
+                if (sectionY == null) continue;
+                final long[] bits = pdc.get(key, PersistentDataType.LONG_ARRAY);
+                if (SectionBits.isValid(bits)) {
+                    sections.put(sectionY, bits.clone());
+                }
+            }
+            legacyKeys = hasLegacyData(pdc) ? new ArrayList<>(getPlayerPlacedPDC(pdc).getKeys()) : null;
+        }
+
+        private TrackedChunk decode(final int minSection, final int sectionCount) {
+            final TrackedChunk tracked = new TrackedChunk(minSection, sectionCount);
+            for (final Map.Entry<Integer, long[]> entry : sections.entrySet()) {
+                tracked.setSection(entry.getKey(), entry.getValue());
+            }
+            if (legacyKeys != null) {
+                for (final NamespacedKey key : legacyKeys) {
+                    final int[] coordinates = getLegacyCoordinates(key);
+                    if (coordinates == null) continue;
+                    tracked.set(coordinates[0], coordinates[1], coordinates[2], true);
+                }
+            }
+            return tracked;
+        }
+    }
+
+    /**
+     * Collects changes to several chunks of the same world, so that every chunk is only read and written once
+     */
+    private static final class Batch {
+
+        private final World world;
+        private final Map<Long, TrackedChunk> chunks = new HashMap<>();
+        private final Map<Long, TrackedChunk> modified = new HashMap<>();
+
+        private Batch(final World world) {
+            this.world = world;
+        }
+
+        private TrackedChunk getChunk(final int blockX, final int blockZ) {
+            final int chunkX = blockX >> 4;
+            final int chunkZ = blockZ >> 4;
+            return chunks.computeIfAbsent(TrackedChunkCache.getChunkKey(chunkX, chunkZ), __ -> {
+                if (!cacheEnabled) return readChunk(world.getChunkAt(chunkX, chunkZ));
+                return getTrackedChunk(world, chunkX, chunkZ);
+            });
+        }
+
+        private boolean get(final int x, final int y, final int z) {
+            return getChunk(x, z).get(x, y, z);
+        }
+
+        private void set(final int x, final int y, final int z, final boolean value) {
+            final TrackedChunk tracked = getChunk(x, z);
+            if (tracked.set(x, y, z, value)) {
+                modified.put(TrackedChunkCache.getChunkKey(x >> 4, z >> 4), tracked);
+            }
+        }
+
+        private void commit() {
+            // Cached chunks are written when they're unloaded or saved
+            if (cacheEnabled) return;
+            for (final Map.Entry<Long, TrackedChunk> entry : modified.entrySet()) {
+                final Chunk chunk = world.getChunkAt(TrackedChunkCache.getChunkX(entry.getKey()), TrackedChunkCache.getChunkZ(entry.getKey()));
+                writeChunk(chunk, entry.getValue(), storageFormat);
+            }
+        }
+    }
+
+    /**
+     * Statistics of the chunk cache
+     *
+     * @see #getCacheStats()
+     */
+    @Getter
+    public static final class CacheStats {
+
+        /**
+         * Amount of chunks that are currently cached
+         */
+        private final int cachedChunks;
+        /**
+         * Amount of lookups that were answered from the cache
+         */
+        private final long hits;
+        /**
+         * Amount of lookups that had to read the chunk's PersistentDataContainer
+         */
+        private final long misses;
+        /**
+         * Amount of flush operations, i.e. chunk unloads and world saves that had to write anything
+         */
+        private final long flushes;
+        /**
+         * Amount of chunks that have been written
+         */
+        private final long flushedChunks;
+        /**
+         * Total time spent writing chunks, in nanoseconds
+         */
+        private final long flushNanos;
+
+        private CacheStats(final int cachedChunks, final long hits, final long misses, final long flushes, final long flushedChunks, final long flushNanos) {
+            this.cachedChunks = cachedChunks;
+            this.hits = hits;
+            this.misses = misses;
+            this.flushes = flushes;
+            this.flushedChunks = flushedChunks;
+            this.flushNanos = flushNanos;
+        }
+
+        /**
+         * Gets the ratio of lookups that were answered from the cache
+         *
+         * @return Hit rate between 0 and 1
+         */
+        public double getHitRate() {
+            final long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return "CacheStats{cachedChunks=" + cachedChunks + ", hits=" + hits + ", misses=" + misses + ", hitRate=" + String.format("%.3f", getHitRate())
+                    + ", flushes=" + flushes + ", flushedChunks=" + flushedChunks + ", flushMillis=" + flushNanos / 1_000_000 + "}";
+        }
+    }
+
+    /**
+     * Formats used to store tracked blocks inside the chunk's PersistentDataContainer
+     */
+    public enum StorageFormat {
+        /**
+         * Stores one {@link NamespacedKey} per tracked block inside a nested container. This is the original format.
+         */
+        LEGACY,
+        /**
+         * Stores one bitset per 16x16x16 chunk section as {@link PersistentDataType#LONG_ARRAY}. Reading and writing a
+         * block is a single bit operation that doesn't need to create any Strings or NamespacedKeys. Data stored in the
+         * {@link #LEGACY} format is still read.
+         */
+        SECTIONS,
+        /**
+         * Stores the data outside of the world in the plugin's data folder, using one file per 32x32 chunks, similar to
+         * Minecraft's region files. This keeps the chunks' PersistentDataContainers small and the files are written
+         * asynchronously, so that tracking blocks doesn't slow down saving the world. Requires the listener to be
+         * registered using {@link JeffLib#registerBlockTracker()}, so that all data is written when the plugin is disabled.
+         */
+        REGION_FILE
+    }
+
 }
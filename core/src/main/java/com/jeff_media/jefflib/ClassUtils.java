@@ -17,16 +17,23 @@
 
 package com.jeff_media.jefflib;
 
+import java.io.File;
 import java.io.IOException;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.security.CodeSource;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Enumeration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 import lombok.experimental.UtilityClass;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Class related methods that do not have something to do with Reflection (see {@link ReflUtils} for that)
@@ -34,22 +41,17 @@ import org.jetbrains.annotations.NotNull;
 @UtilityClass
 public class ClassUtils {
 
+    private static final Map<String, List<String>> CLASS_LISTS = new ConcurrentHashMap<>();
+
     /**
-     * Checks if a class exists
+     * Checks if a class exists. Unlike {@link ReflUtils#getClass(String)}, missing classes are not cached, so this
+     * can be used to check for soft dependencies that might be loaded later.
      *
      * @param name Fully qualified class name
      * @return true if the class exists, otherwise false
      */
     public static boolean exists(@NotNull final String name) {
-        if (ReflUtils.isClassCached(name)) {
-            return true;
-        }
-        try {
-            Class.forName(name);
-            return true;
-        } catch (final ClassNotFoundException exception) {
-            return false;
-        }
+        return ReflUtils.getClass(name, false) != null;
     }
 
     public static int getCurrentLineNumber() {
@@ -118,27 +120,60 @@ public class ClassUtils {
 
     /**
      * Returns a list of all classes included in the plugin's jar file that provides the given class. The returned classes have a format like "com.jeff_media.jefflib.ClassUtils"
+     * <p>
+     * For local jar files, only the jar's central directory is read, nothing is decompressed. The result is cached per jar file.
      */
     @NotNull
     public static List<String> listAllClasses(@NotNull final Class<?> clazz) {
         final CodeSource source = clazz.getProtectionDomain().getCodeSource();
         if (source == null) return Collections.emptyList();
         final URL url = source.getLocation();
-        try (
-                final ZipInputStream zip = new ZipInputStream(url.openStream())) {
-            final List<String> classes = new ArrayList<>();
+        final List<String> classes = CLASS_LISTS.computeIfAbsent(url.toString(), __ -> readClassNames(url));
+        return classes == null ? Collections.emptyList() : new ArrayList<>(classes);
+    }
+
+    @Nullable
+    private static List<String> readClassNames(@NotNull final URL url) {
+        final List<String> classes = new ArrayList<>();
+        final File file = toFile(url);
+        if (file != null && file.isFile()) {
+            try (final ZipFile zip = new ZipFile(file)) {
+                final Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    addClassName(classes, entries.nextElement());
+                }
+                return classes;
+            } catch (IOException exception) {
+                return null;
+            }
+        }
+        try (final ZipInputStream zip = new ZipInputStream(url.openStream())) {
             while (true) {
                 final ZipEntry entry = zip.getNextEntry();
                 if (entry == null) break;
-                if (entry.isDirectory()) continue;
-                final String name = entry.getName();
-                if (name.endsWith(".class")) {
-                    classes.add(name.replace('/', '.').substring(0, name.length() - 6));
-                }
+                addClassName(classes, entry);
             }
             return classes;
         } catch (IOException exception) {
-            return Collections.emptyList();
+            return null;
+        }
+    }
+
+    private static void addClassName(@NotNull final List<String> classes, @NotNull final ZipEntry entry) {
+        if (entry.isDirectory()) return;
+        final String name = entry.getName();
+        if (name.endsWith(".class")) {
+            classes.add(name.replace('/', '.').substring(0, name.length() - 6));
+        }
+    }
+
+    @Nullable
+    private static File toFile(@NotNull final URL url) {
+        if (!"file".equals(url.getProtocol())) return null;
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException exception) {
+            return null;
         }
     }
 }
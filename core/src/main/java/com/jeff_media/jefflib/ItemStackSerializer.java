@@ -21,17 +21,38 @@ import com.jeff_media.jefflib.exceptions.NMSNotSupportedException;
 import com.jeff_media.jefflib.exceptions.UseApiNowException;
 import com.jeff_media.jefflib.internal.annotations.NMS;
 import com.jeff_media.jefflib.internal.annotations.Tested;
+import com.jeff_media.jefflib.internal.nms.AbstractNMSHandler;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectOutput;
+import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 import com.jeff_media.jsonconfigurationserialization.JsonConfigurationSerialization;
 import lombok.SneakyThrows;
 import lombok.experimental.UtilityClass;
 import org.bukkit.Bukkit;
+import org.bukkit.Material;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.PlayerInventory;
@@ -46,6 +67,13 @@ import org.yaml.snakeyaml.external.biz.base64Coder.Base64Coder;
 @UtilityClass
 public class ItemStackSerializer {
 
+    private static final int NBT_FORMAT_VERSION = 1;
+    private static final int STREAM_FORMAT_VERSION = 1;
+    private static final int STREAM_COMPRESSED = 1;
+    private static final int BATCH_FORMAT_VERSION = 2;
+    private static final int STREAM_BUFFER_SIZE = 8192;
+    private static final int MAX_STREAM_SLOTS = 1 << 16;
+
     /**
      * Turns an ItemStack into a Base64 String
      *
@@ -224,6 +252,457 @@ public class ItemStackSerializer {
         }
     }
 
+    /**
+     * Turns an ItemStack into binary NBT, using the same format the server uses to save items. Compared to {@link #toBytes(ItemStack)},
+     * this doesn't write Java class descriptors and is a lot smaller and faster. The current data version is stored along with
+     * the item, so items saved on older Minecraft versions are upgraded when loading them. Requires 1.20.5+.
+     *
+     * @param itemStack ItemStack, or null
+     * @return ItemStack as binary NBT
+     * @nms
+     * @see #fromNbtBytes(byte[])
+     */
+    @NMS
+    public static byte[] toNbtBytes(final ItemStack itemStack) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final DataOutputStream out = new DataOutputStream(bytes)) {
+            writeNbtHeader(out);
+            writeNbtItem(JeffLib.getNMSHandler(), itemStack, out);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Turns binary NBT from {@link #toNbtBytes(ItemStack)} into an ItemStack
+     *
+     * @param input binary NBT
+     * @return ItemStack, or null if a null or air ItemStack was saved
+     * @throws IOException When the data cannot be deserialized
+     * @nms
+     */
+    @NMS
+    public static ItemStack fromNbtBytes(final byte[] input) throws IOException {
+        return readNbt(ByteBuffer.wrap(input));
+    }
+
+    /**
+     * Writes an ItemStack as binary NBT into the given ByteBuffer. Several items can be written into the same buffer and read
+     * again one after the other using {@link #readNbt(ByteBuffer)}.
+     *
+     * @param itemStack ItemStack, or null
+     * @param buffer    ByteBuffer to write to
+     * @throws java.nio.BufferOverflowException if the buffer doesn't have enough space left
+     * @nms
+     * @see #toNbtBytes(ItemStack)
+     */
+    @NMS
+    public static void writeNbt(final ItemStack itemStack, final ByteBuffer buffer) {
+        buffer.put(toNbtBytes(itemStack));
+    }
+
+    /**
+     * Reads one ItemStack written by {@link #writeNbt(ItemStack, ByteBuffer)} or {@link #toNbtBytes(ItemStack)}, and advances the buffer's position past it
+     *
+     * @param buffer ByteBuffer to read from
+     * @return ItemStack, or null if a null or air ItemStack was saved
+     * @throws IOException When the data cannot be deserialized
+     * @nms
+     */
+    @NMS
+    public static ItemStack readNbt(final ByteBuffer buffer) throws IOException {
+        final byte[] bytes;
+        final int offset;
+        final int length = buffer.remaining();
+        if (buffer.hasArray()) {
+            bytes = buffer.array();
+            offset = buffer.arrayOffset() + buffer.position();
+        } else {
+            bytes = new byte[length];
+            offset = 0;
+            buffer.duplicate().get(bytes);
+        }
+        final ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes, offset, length);
+        final ItemStack itemStack;
+        try (final DataInputStream in = new DataInputStream(inputStream)) {
+            final int dataVersion = readNbtHeader(in);
+            itemStack = readNbtItem(JeffLib.getNMSHandler(), in, dataVersion);
+        }
+        buffer.position(buffer.position() + length - inputStream.available());
+        return itemStack;
+    }
+
+    /**
+     * Turns an ItemStack array into binary NBT. The data version is only stored once for the whole array.
+     *
+     * @param items ItemStack array, may contain null
+     * @return ItemStack array as binary NBT
+     * @nms
+     * @see #toNbtBytes(ItemStack)
+     * @see #itemStackArrayFromNbtBytes(byte[])
+     */
+    @NMS
+    public static byte[] itemStackArrayToNbtBytes(final ItemStack[] items) {
+        final AbstractNMSHandler nms = JeffLib.getNMSHandler();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final DataOutputStream out = new DataOutputStream(bytes)) {
+            writeNbtHeader(out);
+            out.writeInt(items.length);
+            for (final ItemStack item : items) {
+                writeNbtItem(nms, item, out);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Turns binary NBT from {@link #itemStackArrayToNbtBytes(ItemStack[])} into an ItemStack array
+     *
+     * @param input binary NBT
+     * @return ItemStack array
+     * @throws IOException When the data cannot be deserialized
+     * @nms
+     */
+    @NMS
+    public static ItemStack[] itemStackArrayFromNbtBytes(final byte[] input) throws IOException {
+        final AbstractNMSHandler nms = JeffLib.getNMSHandler();
+        try (final DataInputStream in = new DataInputStream(new ByteArrayInputStream(input))) {
+            final int dataVersion = readNbtHeader(in);
+            final int length = in.readInt();
+            if (length < 0 || length > input.length) {
+                throw new IOException("Invalid array length " + length);
+            }
+            final ItemStack[] items = new ItemStack[length];
+            for (int i = 0; i < length; i++) {
+                items[i] = readNbtItem(nms, in, dataVersion);
+            }
+            return items;
+        }
+    }
+
+    /**
+     * Writes the contents of an Inventory to the given stream. See {@link #write(ItemStack[], OutputStream, boolean)} for details.
+     *
+     * @param inventory Inventory
+     * @param out       OutputStream to write to. It's flushed, but not closed.
+     * @param compress  Whether to compress the data
+     * @throws IOException When writing to the stream fails
+     * @nms
+     */
+    @NMS
+    public static void write(final Inventory inventory, final OutputStream out, final boolean compress) throws IOException {
+        write(inventory.getContents(), out, compress);
+    }
+
+    /**
+     * Writes an ItemStack array to the given stream as binary NBT, optionally compressed using {@link Deflater}. Unlike
+     * {@link #itemStackArrayToBase64(ItemStack[])}, nothing is buffered in memory or Base64-encoded. Empty slots aren't
+     * written at all, a bitmap marks which slots are filled. Use {@link #read(InputStream)} to load it again. Requires 1.20.5+.
+     *
+     * @param items    ItemStack array, may contain null
+     * @param out      OutputStream to write to. It's flushed, but not closed.
+     * @param compress Whether to compress the data
+     * @throws IOException When writing to the stream fails
+     * @nms
+     */
+    @NMS
+    public static void write(final ItemStack[] items, final OutputStream out, final boolean compress) throws IOException {
+        final AbstractNMSHandler nms = JeffLib.getNMSHandler();
+        out.write(STREAM_FORMAT_VERSION);
+        out.write(compress ? STREAM_COMPRESSED : 0);
+        final Deflater deflater = compress ? new Deflater() : null;
+        try {
+            final DeflaterOutputStream deflaterStream = compress ? new DeflaterOutputStream(out, deflater, STREAM_BUFFER_SIZE) : null;
+            final DataOutputStream data = new DataOutputStream(compress ? deflaterStream : new BufferedOutputStream(out, STREAM_BUFFER_SIZE));
+            writeNbtHeader(data);
+            data.writeInt(items.length);
+            data.write(createSlotBitmap(items));
+            for (final ItemStack item : items) {
+                if (!isEmpty(item)) {
+                    nms.writeItemStack(item, data);
+                }
+            }
+            data.flush();
+            if (deflaterStream != null) {
+                deflaterStream.finish();
+            }
+            out.flush();
+        } finally {
+            if (deflater != null) deflater.end();
+        }
+    }
+
+    /**
+     * Reads an ItemStack array written by {@link #write(ItemStack[], OutputStream, boolean)} or {@link #write(Inventory, OutputStream, boolean)}.
+     * It detects whether the data is compressed. The stream isn't closed, but it might have been read past the end of the data.
+     *
+     * @param in InputStream to read from
+     * @return ItemStack array, with null for empty slots
+     * @throws IOException When the data cannot be deserialized
+     * @nms
+     */
+    @NMS
+    public static ItemStack[] read(final InputStream in) throws IOException {
+        final AbstractNMSHandler nms = JeffLib.getNMSHandler();
+        final int format = in.read();
+        if (format != STREAM_FORMAT_VERSION) {
+            throw new IOException("Unknown inventory format " + format);
+        }
+        final int flags = in.read();
+        if (flags < 0) {
+            throw new EOFException();
+        }
+        final boolean compressed = (flags & STREAM_COMPRESSED) != 0;
+        final Inflater inflater = compressed ? new Inflater() : null;
+        try {
+            final DataInputStream data = new DataInputStream(compressed
+                    ? new InflaterInputStream(in, inflater, STREAM_BUFFER_SIZE)
+                    : new BufferedInputStream(in, STREAM_BUFFER_SIZE));
+            final int dataVersion = readNbtHeader(data);
+            final int length = data.readInt();
+            if (length < 0 || length > MAX_STREAM_SLOTS) {
+                throw new IOException("Invalid array length " + length);
+            }
+            final byte[] bitmap = new byte[(length + 7) >>> 3];
+            data.readFully(bitmap);
+            final ItemStack[] items = new ItemStack[length];
+            for (int i = 0; i < length; i++) {
+                if (isSlotFilled(bitmap, i)) {
+                    items[i] = nms.readItemStack(data, dataVersion);
+                }
+            }
+            return items;
+        } finally {
+            if (inflater != null) inflater.end();
+        }
+    }
+
+    /**
+     * Reads an Inventory written by {@link #write(Inventory, OutputStream, boolean)}. The inventory's size has to be a multiple of 9.
+     *
+     * @param in InputStream to read from
+     * @return Inventory created from the data
+     * @throws IOException When the data cannot be deserialized
+     * @nms
+     * @see #read(InputStream)
+     */
+    @NMS
+    public static Inventory readInventory(final InputStream in) throws IOException {
+        final ItemStack[] items = read(in);
+        final Inventory inventory = Bukkit.getServer().createInventory(null, items.length);
+        inventory.setContents(items);
+        return inventory;
+    }
+
+    /**
+     * Writes many ItemStack arrays, e.g. the contents of several inventories, to the given stream. Every distinct item is only
+     * written once into a table, ignoring its amount. Slots then just refer to the table entry and store the amount. This makes
+     * the output a lot smaller and faster to write when the same items appear many times, e.g. chests full of the same block.
+     * Empty slots are skipped using a bitmap like in {@link #write(ItemStack[], OutputStream, boolean)}. Use {@link #readBatch(InputStream)}
+     * to load it again. Requires 1.20.5+.
+     *
+     * @param inventories ItemStack arrays, may contain null
+     * @param out         OutputStream to write to. It's flushed, but not closed.
+     * @param compress    Whether to compress the data
+     * @throws IOException When writing to the stream fails
+     * @nms
+     */
+    @NMS
+    public static void writeBatch(final Collection<ItemStack[]> inventories, final OutputStream out, final boolean compress) throws IOException {
+        final AbstractNMSHandler nms = JeffLib.getNMSHandler();
+
+        final Map<ItemStack, Integer> table = new LinkedHashMap<>();
+        final int[][] references = new int[inventories.size()][];
+        int inventoryIndex = 0;
+        for (final ItemStack[] items : inventories) {
+            final int[] inventoryReferences = new int[items.length];
+            for (int slot = 0; slot < items.length; slot++) {
+                final ItemStack item = items[slot];
+                if (isEmpty(item)) continue;
+                final ItemStack definition;
+                if (item.getAmount() == 1) {
+                    definition = item;
+                } else {
+                    definition = item.clone();
+                    definition.setAmount(1);
+                }
+                Integer index = table.get(definition);
+                if (index == null) {
+                    index = table.size();
+                    table.put(definition, index);
+                }
+                inventoryReferences[slot] = index;
+            }
+            references[inventoryIndex++] = inventoryReferences;
+        }
+
+        out.write(BATCH_FORMAT_VERSION);
+        out.write(compress ? STREAM_COMPRESSED : 0);
+        final Deflater deflater = compress ? new Deflater() : null;
+        try {
+            final DeflaterOutputStream deflaterStream = compress ? new DeflaterOutputStream(out, deflater, STREAM_BUFFER_SIZE) : null;
+            final DataOutputStream data = new DataOutputStream(compress ? deflaterStream : new BufferedOutputStream(out, STREAM_BUFFER_SIZE));
+            writeNbtHeader(data);
+            writeVarInt(data, table.size());
+            for (final ItemStack definition : table.keySet()) {
+                nms.writeItemStack(definition, data);
+            }
+            writeVarInt(data, references.length);
+            inventoryIndex = 0;
+            for (final ItemStack[] items : inventories) {
+                final int[] inventoryReferences = references[inventoryIndex++];
+                writeVarInt(data, items.length);
+                data.write(createSlotBitmap(items));
+                for (int slot = 0; slot < items.length; slot++) {
+                    if (isEmpty(items[slot])) continue;
+                    writeVarInt(data, inventoryReferences[slot]);
+                    writeVarInt(data, items[slot].getAmount());
+                }
+            }
+            data.flush();
+            if (deflaterStream != null) {
+                deflaterStream.finish();
+            }
+            out.flush();
+        } finally {
+            if (deflater != null) deflater.end();
+        }
+    }
+
+    /**
+     * Reads ItemStack arrays written by {@link #writeBatch(Collection, OutputStream, boolean)}, in the same order as they were written.
+     * It detects whether the data is compressed. The stream isn't closed, but it might have been read past the end of the data.
+     *
+     * @param in InputStream to read from
+     * @return List of ItemStack arrays, with null for empty slots
+     * @throws IOException When the data cannot be deserialized
+     * @nms
+     */
+    @NMS
+    public static List<ItemStack[]> readBatch(final InputStream in) throws IOException {
+        final AbstractNMSHandler nms = JeffLib.getNMSHandler();
+        final int format = in.read();
+        if (format != BATCH_FORMAT_VERSION) {
+            throw new IOException("Unknown inventory batch format " + format);
+        }
+        final int flags = in.read();
+        if (flags < 0) {
+            throw new EOFException();
+        }
+        final boolean compressed = (flags & STREAM_COMPRESSED) != 0;
+        final Inflater inflater = compressed ? new Inflater() : null;
+        try {
+            final DataInputStream data = new DataInputStream(compressed
+                    ? new InflaterInputStream(in, inflater, STREAM_BUFFER_SIZE)
+                    : new BufferedInputStream(in, STREAM_BUFFER_SIZE));
+            final int dataVersion = readNbtHeader(data);
+            final int tableSize = readVarInt(data);
+            final ItemStack[] table = new ItemStack[Math.min(tableSize, MAX_STREAM_SLOTS)];
+            if (tableSize > table.length) {
+                throw new IOException("Invalid item table size " + tableSize);
+            }
+            for (int i = 0; i < tableSize; i++) {
+                table[i] = nms.readItemStack(data, dataVersion);
+            }
+            final int inventoryCount = readVarInt(data);
+            final List<ItemStack[]> inventories = new ArrayList<>(Math.min(inventoryCount, MAX_STREAM_SLOTS));
+            for (int inventory = 0; inventory < inventoryCount; inventory++) {
+                final int length = readVarInt(data);
+                if (length > MAX_STREAM_SLOTS) {
+                    throw new IOException("Invalid array length " + length);
+                }
+                final byte[] bitmap = new byte[(length + 7) >>> 3];
+                data.readFully(bitmap);
+                final ItemStack[] items = new ItemStack[length];
+                for (int slot = 0; slot < length; slot++) {
+                    if (!isSlotFilled(bitmap, slot)) continue;
+                    final int index = readVarInt(data);
+                    if (index >= tableSize) {
+                        throw new IOException("Invalid item table index " + index);
+                    }
+                    final ItemStack item = table[index].clone();
+                    item.setAmount(readVarInt(data));
+                    items[slot] = item;
+                }
+                inventories.add(items);
+            }
+            return inventories;
+        } finally {
+            if (inflater != null) inflater.end();
+        }
+    }
+
+    private static byte[] createSlotBitmap(final ItemStack[] items) {
+        final byte[] bitmap = new byte[(items.length + 7) >>> 3];
+        for (int i = 0; i < items.length; i++) {
+            if (!isEmpty(items[i])) {
+                bitmap[i >>> 3] |= (byte) (1 << (i & 7));
+            }
+        }
+        return bitmap;
+    }
+
+    private static boolean isSlotFilled(final byte[] bitmap, final int slot) {
+        return (bitmap[slot >>> 3] & (1 << (slot & 7))) != 0;
+    }
+
+    private static void writeVarInt(final DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(final DataInput in) throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final byte b = in.readByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (result < 0) {
+                    throw new IOException("Negative varint");
+                }
+                return result;
+            }
+        }
+        throw new IOException("Varint is too long");
+    }
+
+    private static boolean isEmpty(final ItemStack itemStack) {
+        return itemStack == null || itemStack.getType() == Material.AIR;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void writeNbtHeader(final DataOutput out) throws IOException {
+        out.writeByte(NBT_FORMAT_VERSION);
+        out.writeInt(Bukkit.getUnsafe().getDataVersion());
+    }
+
+    private static int readNbtHeader(final DataInput in) throws IOException {
+        final int format = in.readUnsignedByte();
+        if (format != NBT_FORMAT_VERSION) {
+            throw new IOException("Unknown ItemStack format " + format);
+        }
+        return in.readInt();
+    }
+
+    private static void writeNbtItem(final AbstractNMSHandler nms, final ItemStack itemStack, final DataOutput out) throws IOException {
+        if (isEmpty(itemStack)) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            nms.writeItemStack(itemStack, out);
+        }
+    }
+
+    private static ItemStack readNbtItem(final AbstractNMSHandler nms, final DataInput in, final int dataVersion) throws IOException {
+        return in.readBoolean() ? nms.readItemStack(in, dataVersion) : null;
+    }
+
     public static String toSnbtWithType(ItemStack itemStack) {
         String material = itemStack.getType().name().toLowerCase();
         ItemMeta meta = itemStack.getItemMeta();
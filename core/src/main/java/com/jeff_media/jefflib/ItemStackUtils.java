@@ -18,6 +18,7 @@
 package com.jeff_media.jefflib;
 
 import com.google.common.base.Enums;
+import com.jeff_media.jefflib.internal.annotations.NMS;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -27,6 +28,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.logging.Level;
 import lombok.experimental.UtilityClass;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
@@ -63,7 +65,9 @@ public class ItemStackUtils {
     public static final int ERROR_READING_DATA = -2;
 
     /**
-     * Gets the size of an ItemStack's NBT data, or {@link #NO_DATA} if it doesn't have any, or {@link #ERROR_READING_DATA} if the data couldn't be parsed
+     * Gets the size of an ItemStack's NBT data, or {@link #NO_DATA} if it doesn't have any, or {@link #ERROR_READING_DATA} if the data couldn't be parsed.
+     * On 1.20.5+, only the components that differ from the item type's defaults are counted, so plain items without any changed
+     * components return {@link #NO_DATA}, just like items without a tag on older versions.
      *
      * @param itemStack ItemStack to get the NBT data size of
      * @return NBT data size in byteds, or {@link #NO_DATA} if it doesn't have any, or {@link #ERROR_READING_DATA} if the data couldn't be parsed
@@ -72,11 +76,39 @@ public class ItemStackUtils {
         try {
             return JeffLib.getNMSHandler().getItemStackSizeInBytes(itemStack);
         } catch (IOException e) {
-            e.printStackTrace();
+            JeffLib.getLogger().log(Level.WARNING, "[JeffLib] Could not get the size of an ItemStack", e);
             return ERROR_READING_DATA;
         }
     }
 
+    /**
+     * Gets a value that is never smaller than {@link #getSizeInBytes(ItemStack)}, or {@link #NO_DATA} if it doesn't have any NBT data. The item's data still
+     * has to be serialized, only the exact length of every String is not calculated, so this is only slightly cheaper than {@link #getSizeInBytes(ItemStack)}.
+     *
+     * @param itemStack ItemStack to estimate the NBT data size of
+     * @return Upper bound of the NBT data size in bytes, or {@link #NO_DATA} if it doesn't have any, or {@link #ERROR_READING_DATA} if the data couldn't be parsed
+     */
+    public static int estimateSizeInBytes(@NotNull final ItemStack itemStack) {
+        try {
+            return JeffLib.getNMSHandler().getItemStackSizeUpperBound(itemStack);
+        } catch (IOException e) {
+            JeffLib.getLogger().log(Level.WARNING, "[JeffLib] Could not estimate the size of an ItemStack", e);
+            return ERROR_READING_DATA;
+        }
+    }
+
+    /**
+     * Gets the exact amount of bytes this ItemStack takes up when it's sent to players. Requires 1.20.5+.
+     *
+     * @param itemStack ItemStack to get the network size of
+     * @return Network size in bytes
+     * @nms
+     */
+    @NMS
+    public static int getNetworkSizeInBytes(@NotNull final ItemStack itemStack) {
+        return JeffLib.getNMSHandler().getItemStackNetworkSize(itemStack);
+    }
+
     /**
      * Parses an ItemStack from a ConfigurationSection without applying any placeholder values.
      *
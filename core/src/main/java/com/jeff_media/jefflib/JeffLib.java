@@ -28,6 +28,7 @@ import com.jeff_media.jefflib.internal.glowenchantment.GlowEnchantmentFactory;
 import com.jeff_media.jefflib.internal.listeners.BlockTrackListener;
 import com.jeff_media.jefflib.internal.listeners.PlayerScrollListener;
 import com.jeff_media.jefflib.internal.nms.AbstractNMSHandler;
+import com.jeff_media.jefflib.internal.nms.NMSHandlerIndex;
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.lang.reflect.Field;
@@ -260,10 +261,9 @@ public class JeffLib {
         } else {
             internalsName = Bukkit.getServer().getClass().getPackage().getName().split("\\.")[3];
         }
-        try {
-            nmsHandler = (AbstractNMSHandler) Class.forName(packageName + ".internal.nms." + internalsName + ".NMSHandler").getDeclaredConstructor().newInstance();
-        } catch (final ReflectiveOperationException exception) {
-            final String className = ClassUtils.listAllClasses().stream().filter(name -> name.endsWith(internalsName + ".NMSHandler")).findFirst().orElse(null);
+        if (NMSHandlerIndex.isAvailable()) {
+            // The index lists every handler that was bundled, so there's nothing left to find by scanning the jar
+            final String className = NMSHandlerIndex.getHandlerClassName(packageName, internalsName);
             if (className != null) {
                 try {
                     nmsHandler = (AbstractNMSHandler) Class.forName(className).getDeclaredConstructor().newInstance();
@@ -271,6 +271,19 @@ public class JeffLib {
                     cause = ex;
                 }
             }
+        } else {
+            try {
+                nmsHandler = (AbstractNMSHandler) Class.forName(packageName + ".internal.nms." + internalsName + ".NMSHandler").getDeclaredConstructor().newInstance();
+            } catch (final ReflectiveOperationException exception) {
+                final String className = ClassUtils.listAllClasses().stream().filter(name -> name.endsWith(internalsName + ".NMSHandler")).findFirst().orElse(null);
+                if (className != null) {
+                    try {
+                        nmsHandler = (AbstractNMSHandler) Class.forName(className).getDeclaredConstructor().newInstance();
+                    } catch (final ReflectiveOperationException ex) {
+                        cause = ex;
+                    }
+                }
+            }
         }
         if (nmsHandler == null) {
             try {
@@ -317,11 +330,12 @@ public class JeffLib {
     }
 
     /**
-     * Registers the listeners needed to track blocks using {@link BlockTracker}. Requires MC version 1.16.3 or later.
+     * Registers the listeners needed to track blocks using {@link BlockTracker} and enables its chunk cache. Requires MC version 1.16.3 or later.
      */
     public static void registerBlockTracker() {
         if (McVersion.current().isAtLeast(1, 16, 3)) {
             Bukkit.getPluginManager().registerEvents(new BlockTrackListener(), getPlugin());
+            BlockTracker.setCacheEnabled(true);
         } else {
             getPlugin().getLogger().info("You are using an MC version below 1.16.3 - Block Tracking features will be disabled.");
         }
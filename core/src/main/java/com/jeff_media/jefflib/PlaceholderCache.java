@@ -0,0 +1,412 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib;
+
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import com.jeff_media.jefflib.internal.text.PlaceholderParser;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import org.bukkit.OfflinePlayer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Caches PlaceholderAPI results per player and placeholder, for texts that are rendered very often, e.g. scoreboards or holograms.
+ * Enable it using {@link TextUtils#enablePlaceholderCache(Options)}. Afterwards, {@link TextUtils#replacePlaceholders(String, OfflinePlayer)}
+ * and everything using it only asks PlaceholderAPI again when a cached value has expired.
+ * <p>
+ * Values that are about to expire are refreshed while the old value is still returned. Only values of online players are cached,
+ * and they are removed when the player quits. Expired values are removed regularly, and every player can only have a limited amount
+ * of cached values, see {@link Options#maxValuesPerPlayer(int)}.
+ */
+public final class PlaceholderCache {
+
+    private static final int MAX_COUNTED_PLACEHOLDERS = 1024;
+    private static final int SWEEP_INTERVAL = 1024;
+
+    private final Map<UUID, Map<String, Entry>> entries = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> requests = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final AtomicInteger missesSinceSweep = new AtomicInteger();
+    private final BiFunction<OfflinePlayer, String, String> resolver;
+    private final long defaultTtlNanos;
+    private final Map<String, Long> ttlNanos;
+    private final double refreshAhead;
+    private final int maxValuesPerPlayer;
+    private final Executor executor;
+
+    private PlaceholderCache(@NotNull final Options options, @NotNull final BiFunction<OfflinePlayer, String, String> resolver) {
+        this.resolver = resolver;
+        this.defaultTtlNanos = options.defaultTtlNanos;
+        this.ttlNanos = new HashMap<>(options.ttlNanos);
+        this.refreshAhead = options.refreshAhead;
+        this.maxValuesPerPlayer = options.maxValuesPerPlayer;
+        this.executor = options.executor != null ? options.executor : Tasks::sync;
+    }
+
+    /**
+     * Creates a new cache that resolves placeholders using the given function instead of PlaceholderAPI
+     */
+    @Internal
+    @NotNull
+    public static PlaceholderCache create(@NotNull final Options options, @NotNull final BiFunction<OfflinePlayer, String, String> resolver) {
+        return new PlaceholderCache(options, resolver);
+    }
+
+    /**
+     * Replaces all placeholders in the given text, using cached values where possible
+     */
+    @Internal
+    @NotNull
+    public String replace(@NotNull final String text, @NotNull final OfflinePlayer player) {
+        int start = text.indexOf('%');
+        if (start == -1) return text;
+        final StringBuilder builder = new StringBuilder(text.length() + 16);
+        int last = 0;
+        while (start != -1) {
+            final int end = PlaceholderParser.findPlaceholderEnd(text, start);
+            if (end == -1) {
+                start = text.indexOf('%', start + 1);
+                continue;
+            }
+            builder.append(text, last, start).append(get(player, text.substring(start, end)));
+            last = end;
+            start = text.indexOf('%', last);
+        }
+        return builder.append(text, last, text.length()).toString();
+    }
+
+    /**
+     * Gets the value of a single placeholder, e.g. "%player_name%". Values for offline players are never cached.
+     *
+     * @param player      Player to get the value for
+     * @param placeholder Placeholder including its percent signs
+     * @return Cached or freshly resolved value
+     */
+    @NotNull
+    public String get(@NotNull final OfflinePlayer player, @NotNull final String placeholder) {
+        countRequest(placeholder);
+        final long ttl = getTtlNanos(placeholder);
+        if (ttl <= 0 || !player.isOnline()) {
+            return resolver.apply(player, placeholder);
+        }
+        final Map<String, Entry> playerEntries = entries.computeIfAbsent(player.getUniqueId(), __ -> new ConcurrentHashMap<>());
+        final long now = System.nanoTime();
+        final Entry entry = playerEntries.get(placeholder);
+        if (entry != null && now - entry.expiresAt < 0) {
+            hits.increment();
+            final String value = entry.value;
+            if (now - entry.refreshAt >= 0 && entry.refreshing.compareAndSet(false, true)) {
+                refresh(entry, player, placeholder, ttl);
+            }
+            return value;
+        }
+        misses.increment();
+        final String value = resolver.apply(player, placeholder);
+        if (entry == null && playerEntries.size() >= maxValuesPerPlayer) {
+            removeExpired(playerEntries, now);
+        }
+        if (entry != null || playerEntries.size() < maxValuesPerPlayer) {
+            playerEntries.put(placeholder, new Entry(value, now, ttl, refreshAhead));
+        }
+        if (missesSinceSweep.incrementAndGet() >= SWEEP_INTERVAL) {
+            missesSinceSweep.set(0);
+            sweep(now);
+        }
+        return value;
+    }
+
+    private void countRequest(@NotNull final String placeholder) {
+        LongAdder count = requests.get(placeholder);
+        if (count == null) {
+            // Texts can contain anything that looks like a placeholder, e.g. chat messages, so only a limited amount is counted
+            if (requests.size() >= MAX_COUNTED_PLACEHOLDERS) return;
+            count = requests.computeIfAbsent(placeholder, __ -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    /**
+     * Removes all expired values, and the maps of players that don't have any cached values left
+     */
+    private void sweep(final long now) {
+        for (final Map<String, Entry> playerEntries : entries.values()) {
+            removeExpired(playerEntries, now);
+        }
+        entries.values().removeIf(Map::isEmpty);
+    }
+
+    private static void removeExpired(@NotNull final Map<String, Entry> playerEntries, final long now) {
+        playerEntries.values().removeIf(entry -> now - entry.expiresAt >= 0);
+    }
+
+    private void refresh(@NotNull final Entry entry, @NotNull final OfflinePlayer player, @NotNull final String placeholder, final long ttl) {
+        try {
+            executor.execute(() -> {
+                try {
+                    final String value = resolver.apply(player, placeholder);
+                    entry.update(value, System.nanoTime(), ttl, refreshAhead);
+                    refreshes.increment();
+                } finally {
+                    entry.refreshing.set(false);
+                }
+            });
+        } catch (final RuntimeException exception) {
+            // e.g. the plugin is being disabled. The value will be resolved again once it has expired
+            entry.refreshing.set(false);
+        }
+    }
+
+    private long getTtlNanos(@NotNull final String placeholder) {
+        final Long ttl = ttlNanos.get(placeholder);
+        return ttl != null ? ttl : defaultTtlNanos;
+    }
+
+    /**
+     * Removes all cached values of the given player
+     */
+    public void invalidate(@NotNull final UUID player) {
+        entries.remove(player);
+    }
+
+    /**
+     * Removes the cached value of the given placeholder for the given player
+     */
+    public void invalidate(@NotNull final UUID player, @NotNull final String placeholder) {
+        final Map<String, Entry> playerEntries = entries.get(player);
+        if (playerEntries != null) {
+            playerEntries.remove(placeholder);
+        }
+    }
+
+    /**
+     * Removes all cached values
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Gets the current hit rate and the most requested placeholders
+     */
+    @NotNull
+    public Statistics getStatistics() {
+        final Map<String, Long> counts = new HashMap<>();
+        requests.forEach((placeholder, count) -> counts.put(placeholder, count.sum()));
+        int cached = 0;
+        for (final Map<String, Entry> playerEntries : entries.values()) {
+            cached += playerEntries.size();
+        }
+        return new Statistics(hits.sum(), misses.sum(), refreshes.sum(), cached, counts);
+    }
+
+    /**
+     * Resets the hit, miss and refresh counters and the request counts
+     */
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        refreshes.reset();
+        requests.clear();
+    }
+
+    private static final class Entry {
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile String value;
+        private volatile long expiresAt;
+        private volatile long refreshAt;
+
+        private Entry(final String value, final long now, final long ttl, final double refreshAhead) {
+            update(value, now, ttl, refreshAhead);
+        }
+
+        private void update(final String value, final long now, final long ttl, final double refreshAhead) {
+            this.value = value;
+            this.refreshAt = now + (long) (ttl * (1 - refreshAhead));
+            this.expiresAt = now + ttl;
+        }
+    }
+
+    /**
+     * Options for the placeholder cache
+     */
+    public static final class Options {
+
+        private final Map<String, Long> ttlNanos = new HashMap<>();
+        private long defaultTtlNanos = TimeUnit.SECONDS.toNanos(1);
+        private double refreshAhead = 0.2;
+        private int maxValuesPerPlayer = 256;
+        private Executor executor;
+
+        /**
+         * Sets how long values are cached, unless another time has been set for the placeholder. Defaults to 1 second.
+         * Setting it to 0 only caches the placeholders that have their own time set.
+         */
+        @NotNull
+        public Options defaultTtl(final long ttl, @NotNull final TimeUnit unit) {
+            if (ttl < 0) throw new IllegalArgumentException("ttl must not be negative");
+            this.defaultTtlNanos = unit.toNanos(ttl);
+            return this;
+        }
+
+        /**
+         * Sets how long values of the given placeholder are cached. Setting it to 0 disables caching for this placeholder.
+         *
+         * @param placeholder Placeholder including its percent signs, e.g. "%vault_eco_balance%"
+         */
+        @NotNull
+        public Options ttl(@NotNull final String placeholder, final long ttl, @NotNull final TimeUnit unit) {
+            if (ttl < 0) throw new IllegalArgumentException("ttl must not be negative");
+            this.ttlNanos.put(placeholder, unit.toNanos(ttl));
+            return this;
+        }
+
+        /**
+         * Sets which part of the ttl is used to refresh values before they expire. Defaults to 0.2,
+         * which means that a value cached for 5 seconds gets refreshed when it's requested after 4 seconds. 0 disables refreshing ahead.
+         */
+        @NotNull
+        public Options refreshAhead(final double refreshAhead) {
+            if (refreshAhead < 0 || refreshAhead >= 1) throw new IllegalArgumentException("refreshAhead must be at least 0 and less than 1");
+            this.refreshAhead = refreshAhead;
+            return this;
+        }
+
+        /**
+         * Sets how many values can be cached per player. Defaults to 256. When a player already has this many values cached,
+         * further placeholders are resolved without caching them until some of the cached values have expired.
+         */
+        @NotNull
+        public Options maxValuesPerPlayer(final int maxValuesPerPlayer) {
+            if (maxValuesPerPlayer < 1) throw new IllegalArgumentException("maxValuesPerPlayer must be at least 1");
+            this.maxValuesPerPlayer = maxValuesPerPlayer;
+            return this;
+        }
+
+        /**
+         * Sets the executor used to refresh values ahead. Defaults to running the refresh on the main thread during the next tick.
+         * Only use an async executor, e.g. {@code Tasks::async}, if all cached placeholders can safely be resolved from another thread.
+         */
+        @NotNull
+        public Options executor(@Nullable final Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+    }
+
+    /**
+     * Snapshot of the counters of a {@link PlaceholderCache}. A hit means the value was taken from the cache, a miss means
+     * it had to be resolved by PlaceholderAPI. Placeholders that aren't cached count neither as hit nor as miss.
+     */
+    public static final class Statistics {
+
+        private final long hits;
+        private final long misses;
+        private final long refreshes;
+        private final int cachedValues;
+        private final Map<String, Long> requests;
+
+        private Statistics(final long hits, final long misses, final long refreshes, final int cachedValues, final Map<String, Long> requests) {
+            this.hits = hits;
+            this.misses = misses;
+            this.refreshes = refreshes;
+            this.cachedValues = cachedValues;
+            this.requests = requests;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * Gets how many values have been refreshed before they expired
+         */
+        public long getRefreshes() {
+            return refreshes;
+        }
+
+        /**
+         * Gets the amount of values currently cached
+         */
+        public int getCachedValues() {
+            return cachedValues;
+        }
+
+        /**
+         * Gets the hit rate between 0 and 1, or 0 if nothing has been requested yet
+         */
+        public double getHitRate() {
+            final long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        /**
+         * Gets how often each placeholder has been requested. Only the first 1024 different placeholders are counted.
+         */
+        @NotNull
+        public Map<String, Long> getRequests() {
+            return Collections.unmodifiableMap(requests);
+        }
+
+        /**
+         * Gets the most requested placeholders, most requested first
+         *
+         * @param limit Maximum amount of placeholders to return
+         */
+        @NotNull
+        public Map<String, Long> getHottestPlaceholders(final int limit) {
+            final List<Map.Entry<String, Long>> sorted = new ArrayList<>(requests.entrySet());
+            sorted.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+            final Map<String, Long> hottest = new LinkedHashMap<>();
+            for (int i = 0; i < Math.min(limit, sorted.size()); i++) {
+                hottest.put(sorted.get(i).getKey(), sorted.get(i).getValue());
+            }
+            return hottest;
+        }
+
+        @Override
+        public String toString() {
+            return "Statistics{" +
+                    "hits=" + hits +
+                    ", misses=" + misses +
+                    ", hitRate=" + String.format("%.2f", getHitRate()) +
+                    ", refreshes=" + refreshes +
+                    ", cachedValues=" + cachedValues +
+                    ", hottest=" + getHottestPlaceholders(5) +
+                    '}';
+        }
+    }
+}
@@ -53,10 +53,18 @@ public final class ProfileUtils {
     @NMS
     @NotNull
     public static File getPlayerDataFile(UUID uuid) {
+        return new File(getPlayerDataFolder(), uuid.toString() + ".dat");
+    }
+
+    /**
+     * Gets the folder containing the .dat files of all players
+     */
+    @NotNull
+    public static File getPlayerDataFolder() {
         File playerDataFolder = new File(WorldUtils.getDefaultWorld().getWorldFolder(), "playerdata");
         if (!playerDataFolder.exists()) {
             playerDataFolder.mkdirs();
         }
-        return new File(playerDataFolder, uuid.toString() + ".dat");
+        return playerDataFolder;
     }
 }
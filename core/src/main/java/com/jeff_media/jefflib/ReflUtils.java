@@ -17,15 +17,23 @@
 
 package com.jeff_media.jefflib;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import lombok.experimental.UtilityClass;
 import org.bukkit.Bukkit;
 import org.jetbrains.annotations.NotNull;
@@ -38,14 +46,23 @@ import org.jetbrains.annotations.Nullable;
 @UtilityClass
 public class ReflUtils {
 
-    private static final Map<String, Class<?>> CLASSES = new HashMap<>();
-    private static final Table<Class<?>, String, Method> METHODS_NO_ARGS = HashBasedTable.create();
-    private static final Table<Class<?>, MethodParameters, Method> METHODS_WITH_ARGS = HashBasedTable.create();
-    private static final Table<Class<?>, String, Field> FIELDS = HashBasedTable.create();
-    private static final Map<Class<?>, Constructor<?>> CONSTRUCTORS_NO_ARGS = new HashMap<>();
-    private static final Table<Class<?>, Parameters, Constructor<?>> CONSTRUCTOR_WITH_ARGS = HashBasedTable.create();
+    private static final Map<String, Optional<Class<?>>> CLASSES = new ConcurrentHashMap<>();
+    private static final Map<MemberKey, Optional<Method>> METHODS = new ConcurrentHashMap<>();
+    private static final Map<MemberKey, Optional<Field>> FIELDS = new ConcurrentHashMap<>();
+    private static final Map<MemberKey, Optional<Constructor<?>>> CONSTRUCTORS = new ConcurrentHashMap<>();
+    private static final Class<?>[] NO_PARAMS = new Class<?>[0];
+    private static final LongAdder[] COUNTERS = new LongAdder[LookupStatistics.COUNTER_COUNT];
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final Map<MemberKey, MethodHandle> METHOD_HANDLES = new ConcurrentHashMap<>();
+    private static final Map<MemberKey, Object> ACCESSORS = new ConcurrentHashMap<>();
     private static String nmsVersion;
 
+    static {
+        for (int i = 0; i < COUNTERS.length; i++) {
+            COUNTERS[i] = new LongAdder();
+        }
+    }
+
     /**
      * @deprecated Doesn't work on 1.17+
      */
@@ -55,21 +72,36 @@ public class ReflUtils {
     }
 
     /**
-     * Gets a class
+     * Gets a class. Classes that couldn't be found are remembered too, so probing for the same missing class again is cheap.
+     * Use {@link #clearNegativeCache()} if classes might have become available later, e.g. after a soft dependency has been loaded.
      *
      * @return The class, or null if not found
      */
     public static @Nullable Class<?> getClass(final @NotNull String className) {
-        if (CLASSES.containsKey(className)) {
-            return CLASSES.get(className);
+        return getClass(className, true);
+    }
+
+    /**
+     * Gets a class. When cacheMissing is false, a missing class is not remembered and a cached missing class is looked up again.
+     */
+    static @Nullable Class<?> getClass(final @NotNull String className, final boolean cacheMissing) {
+        final Optional<Class<?>> cached = CLASSES.get(className);
+        if (cached != null && (cacheMissing || cached.isPresent())) {
+            return hit(LookupStatistics.CLASS, cached).orElse(null);
         }
+        COUNTERS[LookupStatistics.CLASS + LookupStatistics.MISS].increment();
+        Class<?> classForName;
         try {
-            final Class<?> classForName = Class.forName(className);
-            CLASSES.put(className, classForName);
-            return classForName;
+            classForName = Class.forName(className);
         } catch (final ClassNotFoundException e) {
-            return null;
+            classForName = null;
+        }
+        if (classForName != null) {
+            CLASSES.put(className, Optional.of(classForName));
+        } else if (cacheMissing) {
+            CLASSES.putIfAbsent(className, Optional.empty());
         }
+        return classForName;
     }
 
     /**
@@ -101,7 +133,7 @@ public class ReflUtils {
      * @return Whether the class is already cached
      */
     public static boolean isClassCached(final String className) {
-        return CLASSES.containsKey(className);
+        return isPresent(CLASSES.get(className));
     }
 
     /**
@@ -112,7 +144,7 @@ public class ReflUtils {
      * @return Whether the method is already cached
      */
     public static boolean isMethodCached(final @NotNull Class<?> clazz, final @NotNull String methodName) {
-        return METHODS_NO_ARGS.contains(clazz, methodName);
+        return isPresent(METHODS.get(new MemberKey(MemberKey.METHOD, clazz, methodName)));
     }
 
     /**
@@ -121,24 +153,14 @@ public class ReflUtils {
      * @return The method, or null if not found
      */
     public static @Nullable Method getMethod(final @NotNull Class<?> clazz, final @NotNull String methodName) {
-        if (METHODS_NO_ARGS.contains(clazz, methodName)) {
-            return METHODS_NO_ARGS.get(clazz, methodName);
-        }
-        try {
-            final Method method = clazz.getDeclaredMethod(methodName);
-            method.setAccessible(true);
-            METHODS_NO_ARGS.put(clazz, methodName, method);
-            return method;
-        } catch (final NoSuchMethodException e) {
-            return null;
-        }
+        return getMethod(clazz, methodName, NO_PARAMS);
     }
 
     /**
      * Gets whether a method with parameters is already cached
      */
     public static boolean isMethodCached(final @NotNull Class<?> clazz, final @NotNull String methodName, final @NotNull Class<?>... params) {
-        return METHODS_WITH_ARGS.contains(clazz, new MethodParameters(methodName, params));
+        return isPresent(METHODS.get(new MemberKey(MemberKey.METHOD, clazz, methodName, params)));
     }
 
     /**
@@ -147,18 +169,21 @@ public class ReflUtils {
      * @return The method, or null if not found
      */
     public static Method getMethod(final @NotNull Class<?> clazz, final @NotNull String methodName, final @NotNull Class<?>... params) {
-        final MethodParameters methodParameters = new MethodParameters(methodName, params);
-        if (METHODS_WITH_ARGS.contains(clazz, methodParameters)) {
-            return METHODS_WITH_ARGS.get(clazz, methodParameters);
+        final MemberKey key = new MemberKey(MemberKey.METHOD, clazz, methodName, params);
+        final Optional<Method> cached = METHODS.get(key);
+        if (cached != null) {
+            return hit(LookupStatistics.METHOD, cached).orElse(null);
         }
+        COUNTERS[LookupStatistics.METHOD + LookupStatistics.MISS].increment();
+        Method method;
         try {
-            final Method method = clazz.getDeclaredMethod(methodName, params);
+            method = clazz.getDeclaredMethod(methodName, params);
             method.setAccessible(true);
-            METHODS_WITH_ARGS.put(clazz, methodParameters, method);
-            return method;
         } catch (final NoSuchMethodException e) {
-            return null;
+            method = null;
         }
+        METHODS.putIfAbsent(key, Optional.ofNullable(method));
+        return method;
     }
 
     /**
@@ -191,17 +216,21 @@ public class ReflUtils {
      * @return The field, or null if not found
      */
     public static Field getField(final @NotNull Class<?> clazz, final @NotNull String fieldName) {
-        if (FIELDS.contains(clazz, fieldName)) {
-            return FIELDS.get(clazz, fieldName);
+        final MemberKey key = new MemberKey(MemberKey.FIELD, clazz, fieldName);
+        final Optional<Field> cached = FIELDS.get(key);
+        if (cached != null) {
+            return hit(LookupStatistics.FIELD, cached).orElse(null);
         }
+        COUNTERS[LookupStatistics.FIELD + LookupStatistics.MISS].increment();
+        Field field;
         try {
-            final Field field = clazz.getDeclaredField(fieldName);
+            field = clazz.getDeclaredField(fieldName);
             field.setAccessible(true);
-            FIELDS.put(clazz, fieldName, field);
-            return field;
         } catch (final NoSuchFieldException e) {
-            return null;
+            field = null;
         }
+        FIELDS.putIfAbsent(key, Optional.ofNullable(field));
+        return field;
     }
 
     /**
@@ -223,21 +252,21 @@ public class ReflUtils {
      * Gets whether a field is already cached
      */
     public static boolean isFieldCached(final @NotNull Class<?> clazz, final @NotNull String fieldName) {
-        return FIELDS.contains(clazz, fieldName);
+        return isPresent(FIELDS.get(new MemberKey(MemberKey.FIELD, clazz, fieldName)));
     }
 
     /**
      * Gets if the no-args constructor is already cached
      */
     public static boolean isConstructorCached(final @NotNull Class<?> clazz) {
-        return CONSTRUCTORS_NO_ARGS.containsKey(clazz);
+        return isConstructorCached(clazz, NO_PARAMS);
     }
 
     /**
      * Gets if the constructor with parameters is already cached
      */
     public static boolean isConstructorCached(final @NotNull Class<?> clazz, final @NotNull Class<?>... params) {
-        return CONSTRUCTOR_WITH_ARGS.contains(clazz, new Parameters(params));
+        return isPresent(CONSTRUCTORS.get(new MemberKey(MemberKey.CONSTRUCTOR, clazz, "<init>", params)));
     }
 
     /**
@@ -246,17 +275,7 @@ public class ReflUtils {
      * @return The constructor, or null if not found
      */
     public static Constructor<?> getConstructor(final @NotNull Class<?> clazz) {
-        if (CONSTRUCTORS_NO_ARGS.containsKey(clazz)) {
-            return CONSTRUCTORS_NO_ARGS.get(clazz);
-        }
-        try {
-            final Constructor<?> constructor = clazz.getDeclaredConstructor();
-            constructor.setAccessible(true);
-            CONSTRUCTORS_NO_ARGS.put(clazz, constructor);
-            return constructor;
-        } catch (final NoSuchMethodException e) {
-            return null;
-        }
+        return getConstructor(clazz, NO_PARAMS);
     }
 
     /**
@@ -265,66 +284,453 @@ public class ReflUtils {
      * @return The constructor, or null if not found
      */
     public static Constructor<?> getConstructor(final @NotNull Class<?> clazz, final @Nullable Class<?>... params) {
-        final Parameters constructorParams = new Parameters(params);
-        if (CONSTRUCTOR_WITH_ARGS.contains(clazz, constructorParams)) {
-            return CONSTRUCTOR_WITH_ARGS.get(clazz, constructorParams);
+        final MemberKey key = new MemberKey(MemberKey.CONSTRUCTOR, clazz, "<init>", params == null ? NO_PARAMS : params);
+        final Optional<Constructor<?>> cached = CONSTRUCTORS.get(key);
+        if (cached != null) {
+            return hit(LookupStatistics.CONSTRUCTOR, cached).orElse(null);
         }
+        COUNTERS[LookupStatistics.CONSTRUCTOR + LookupStatistics.MISS].increment();
+        Constructor<?> constructor;
         try {
-            final Constructor<?> constructor = clazz.getDeclaredConstructor(params);
+            constructor = clazz.getDeclaredConstructor(params);
             constructor.setAccessible(true);
-            CONSTRUCTOR_WITH_ARGS.put(clazz, constructorParams, constructor);
-            return constructor;
         } catch (final NoSuchMethodException e) {
-            return null;
+            constructor = null;
         }
+        CONSTRUCTORS.putIfAbsent(key, Optional.ofNullable(constructor));
+        return constructor;
     }
 
-    private static class Parameters {
-        @NotNull
-        private final Class<?>[] parameterClazzes;
+    /**
+     * Gets how often classes, methods, fields and constructors were looked up through this class, and how many of those lookups were served from the cache
+     *
+     * @return A snapshot of the lookup counters
+     */
+    @NotNull
+    public static LookupStatistics getLookupStatistics() {
+        final long[] values = new long[COUNTERS.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = COUNTERS[i].sum();
+        }
+        return new LookupStatistics(values);
+    }
 
-        private Parameters(@NotNull Class<?>... parameterClazzes) {
-            this.parameterClazzes = parameterClazzes;
+    /**
+     * Resets the lookup counters. The cached lookups are kept.
+     */
+    public static void resetLookupStatistics() {
+        for (final LongAdder counter : COUNTERS) {
+            counter.reset();
         }
+    }
 
-        @Override
-        public int hashCode() {
-            return Arrays.hashCode(parameterClazzes);
+    /**
+     * Forgets all classes, methods, fields and constructors that couldn't be found, so that they are looked up again the
+     * next time. Found members stay cached.
+     */
+    public static void clearNegativeCache() {
+        CLASSES.values().removeIf(cached -> !cached.isPresent());
+        METHODS.values().removeIf(cached -> !cached.isPresent());
+        FIELDS.values().removeIf(cached -> !cached.isPresent());
+        CONSTRUCTORS.values().removeIf(cached -> !cached.isPresent());
+    }
+
+    private static <T> Optional<T> hit(final int category, final Optional<T> cached) {
+        COUNTERS[category + LookupStatistics.HIT].increment();
+        if (!cached.isPresent()) {
+            COUNTERS[category + LookupStatistics.NEGATIVE_HIT].increment();
         }
+        return cached;
+    }
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            Parameters that = (Parameters) o;
-            return Arrays.equals(parameterClazzes, that.parameterClazzes);
+    private static boolean isPresent(final @Nullable Optional<?> cached) {
+        return cached != null && cached.isPresent();
+    }
+
+    /**
+     * Gets a cached {@link MethodHandle} for the given method, or null if not found. Unlike {@link Method#invoke(Object, Object...)},
+     * calling the handle through {@link MethodHandle#invokeExact(Object...)} doesn't allocate a varargs array or box primitive arguments.
+     *
+     * @return The method handle, or null if not found
+     */
+    public static @Nullable MethodHandle getMethodHandle(final @NotNull Class<?> clazz, final @NotNull String methodName, final @NotNull Class<?>... params) {
+        return METHOD_HANDLES.computeIfAbsent(new MemberKey(MemberKey.METHOD, clazz, methodName, params), key -> {
+            final Method method = getMethod(clazz, methodName, params);
+            if (method == null) return null;
+            try {
+                return LOOKUP.unreflect(method);
+            } catch (final IllegalAccessException e) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Gets a cached {@link MethodHandle} for the given constructor, or null if not found
+     *
+     * @return The constructor handle, or null if not found
+     */
+    public static @Nullable MethodHandle getConstructorHandle(final @NotNull Class<?> clazz, final @NotNull Class<?>... params) {
+        return METHOD_HANDLES.computeIfAbsent(new MemberKey(MemberKey.CONSTRUCTOR, clazz, "<init>", params), key -> {
+            final Constructor<?> constructor = getConstructor(clazz, params);
+            if (constructor == null) return null;
+            try {
+                return LOOKUP.unreflectConstructor(constructor);
+            } catch (final IllegalAccessException e) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Gets a cached {@link MethodHandle} that reads the given field, or null if not found
+     *
+     * @return The getter handle, or null if not found
+     */
+    public static @Nullable MethodHandle getFieldGetterHandle(final @NotNull Class<?> clazz, final @NotNull String fieldName) {
+        return METHOD_HANDLES.computeIfAbsent(new MemberKey(MemberKey.FIELD_GETTER, clazz, fieldName), key -> {
+            final Field field = getField(clazz, fieldName);
+            if (field == null) return null;
+            try {
+                return LOOKUP.unreflectGetter(field);
+            } catch (final IllegalAccessException e) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Gets a cached {@link MethodHandle} that writes the given field, or null if not found. Final fields can't be written this way.
+     *
+     * @return The setter handle, or null if not found
+     */
+    public static @Nullable MethodHandle getFieldSetterHandle(final @NotNull Class<?> clazz, final @NotNull String fieldName) {
+        return METHOD_HANDLES.computeIfAbsent(new MemberKey(MemberKey.FIELD_SETTER, clazz, fieldName), key -> {
+            final Field field = getField(clazz, fieldName);
+            if (field == null) return null;
+            try {
+                return LOOKUP.unreflectSetter(field);
+            } catch (final IllegalAccessException e) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Gets a cached {@link Function} that calls the given instance method without parameters, or null if not found.
+     * For public methods of public classes, this is a class generated through {@link LambdaMetafactory} that calls the method
+     * directly. Otherwise, it delegates to a {@link MethodHandle}. The type parameters are not checked.
+     *
+     * @param clazz      Class where this method is declared
+     * @param methodName Name of the method
+     * @param <T>        Type of the object the method is called on
+     * @param <R>        Return type of the method
+     * @return The function, or null if not found
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public static <T, R> Function<T, R> getMethodFunction(final @NotNull Class<?> clazz, final @NotNull String methodName) {
+        return (Function<T, R>) ACCESSORS.computeIfAbsent(new MemberKey(MemberKey.METHOD_FUNCTION, clazz, methodName), key -> {
+            final MethodHandle handle = getMethodHandle(clazz, methodName);
+            if (handle == null) return null;
+            final Object generated = generate(Function.class, "apply", handle, getMethod(clazz, methodName), false);
+            if (generated != null) return generated;
+            final MethodHandle erased = handle.asType(MethodType.methodType(Object.class, Object.class));
+            return (Function<Object, Object>) object -> {
+                try {
+                    return erased.invokeExact(object);
+                } catch (final Throwable t) {
+                    throw sneakyThrow(t);
+                }
+            };
+        });
+    }
+
+    /**
+     * Gets a cached {@link BiConsumer} that calls the given instance method with one parameter and ignores its return value, or null if not found.
+     * For public methods of public classes, this is a class generated through {@link LambdaMetafactory} that calls the method
+     * directly. Otherwise, it delegates to a {@link MethodHandle}. The type parameters are not checked.
+     *
+     * @param clazz      Class where this method is declared
+     * @param methodName Name of the method
+     * @param param      Parameter type of the method
+     * @param <T>        Type of the object the method is called on
+     * @param <U>        Parameter type of the method
+     * @return The consumer, or null if not found
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public static <T, U> BiConsumer<T, U> getMethodBiConsumer(final @NotNull Class<?> clazz, final @NotNull String methodName, final @NotNull Class<?> param) {
+        return (BiConsumer<T, U>) ACCESSORS.computeIfAbsent(new MemberKey(MemberKey.METHOD_BICONSUMER, clazz, methodName, param), key -> {
+            final MethodHandle handle = getMethodHandle(clazz, methodName, param);
+            if (handle == null) return null;
+            final Object generated = generate(BiConsumer.class, "accept", handle, getMethod(clazz, methodName, param), true);
+            if (generated != null) return generated;
+            final MethodHandle erased = handle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+            return (BiConsumer<Object, Object>) (object, value) -> {
+                try {
+                    erased.invokeExact(object, value);
+                } catch (final Throwable t) {
+                    throw sneakyThrow(t);
+                }
+            };
+        });
+    }
+
+    /**
+     * Gets a cached {@link Supplier} that calls the given no-args constructor, or null if not found
+     *
+     * @param clazz The class to instantiate
+     * @param <R>   Type of the class
+     * @return The supplier, or null if not found
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public static <R> Supplier<R> getConstructorSupplier(final @NotNull Class<R> clazz) {
+        return (Supplier<R>) ACCESSORS.computeIfAbsent(new MemberKey(MemberKey.CONSTRUCTOR_SUPPLIER, clazz, "<init>"), key -> {
+            final MethodHandle handle = getConstructorHandle(clazz);
+            if (handle == null) return null;
+            final MethodHandle erased = handle.asType(MethodType.methodType(Object.class));
+            return (Supplier<Object>) () -> {
+                try {
+                    return erased.invokeExact();
+                } catch (final Throwable t) {
+                    throw sneakyThrow(t);
+                }
+            };
+        });
+    }
+
+    /**
+     * Gets a cached {@link Function} that calls the given constructor with one parameter, or null if not found. The type parameters are not checked.
+     *
+     * @param clazz The class to instantiate
+     * @param param Parameter type of the constructor
+     * @param <U>   Parameter type of the constructor
+     * @param <R>   Type of the class
+     * @return The function, or null if not found
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public static <U, R> Function<U, R> getConstructorFunction(final @NotNull Class<?> clazz, final @NotNull Class<?> param) {
+        return (Function<U, R>) ACCESSORS.computeIfAbsent(new MemberKey(MemberKey.CONSTRUCTOR_FUNCTION, clazz, "<init>", param), key -> {
+            final MethodHandle handle = getConstructorHandle(clazz, param);
+            if (handle == null) return null;
+            final MethodHandle erased = handle.asType(MethodType.methodType(Object.class, Object.class));
+            return (Function<Object, Object>) value -> {
+                try {
+                    return erased.invokeExact(value);
+                } catch (final Throwable t) {
+                    throw sneakyThrow(t);
+                }
+            };
+        });
+    }
+
+    /**
+     * Gets a cached {@link Function} that reads the given field, or null if not found. The type parameters are not checked.
+     *
+     * @param clazz     Class where this field is declared
+     * @param fieldName Name of the field
+     * @param <T>       Type of the object to read the field from
+     * @param <R>       Type of the field
+     * @return The getter, or null if not found
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public static <T, R> Function<T, R> getFieldGetter(final @NotNull Class<?> clazz, final @NotNull String fieldName) {
+        return (Function<T, R>) ACCESSORS.computeIfAbsent(new MemberKey(MemberKey.FIELD_GETTER_FUNCTION, clazz, fieldName), key -> {
+            final MethodHandle handle = getFieldGetterHandle(clazz, fieldName);
+            if (handle == null) return null;
+            final MethodHandle erased = handle.type().parameterCount() == 0
+                    ? MethodHandles.dropArguments(handle.asType(MethodType.methodType(Object.class)), 0, Object.class)
+                    : handle.asType(MethodType.methodType(Object.class, Object.class));
+            return (Function<Object, Object>) object -> {
+                try {
+                    return erased.invokeExact(object);
+                } catch (final Throwable t) {
+                    throw sneakyThrow(t);
+                }
+            };
+        });
+    }
+
+    /**
+     * Gets a cached {@link BiConsumer} that writes the given field, or null if not found. Final fields can't be written this way. The type parameters are not checked.
+     *
+     * @param clazz     Class where this field is declared
+     * @param fieldName Name of the field
+     * @param <T>       Type of the object to write the field on
+     * @param <U>       Type of the field
+     * @return The setter, or null if not found
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public static <T, U> BiConsumer<T, U> getFieldSetter(final @NotNull Class<?> clazz, final @NotNull String fieldName) {
+        return (BiConsumer<T, U>) ACCESSORS.computeIfAbsent(new MemberKey(MemberKey.FIELD_SETTER_CONSUMER, clazz, fieldName), key -> {
+            final MethodHandle handle = getFieldSetterHandle(clazz, fieldName);
+            if (handle == null) return null;
+            final MethodHandle erased = handle.type().parameterCount() == 1
+                    ? MethodHandles.dropArguments(handle.asType(MethodType.methodType(void.class, Object.class)), 0, Object.class)
+                    : handle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+            return (BiConsumer<Object, Object>) (object, value) -> {
+                try {
+                    erased.invokeExact(object, value);
+                } catch (final Throwable t) {
+                    throw sneakyThrow(t);
+                }
+            };
+        });
+    }
+
+    /**
+     * Spins up an implementation of the given functional interface through {@link LambdaMetafactory}, or returns null if the method
+     * isn't accessible from here. Static methods are not supported.
+     */
+    private static @Nullable Object generate(final @NotNull Class<?> functionalInterface, final @NotNull String samName, final @NotNull MethodHandle handle,
+                                             final @Nullable Method method, final boolean returnsVoid) {
+        if (method == null
+                || Modifier.isStatic(method.getModifiers())
+                || !Modifier.isPublic(method.getModifiers())
+                || !Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+            return null;
+        }
+        final MethodType instantiated = returnsVoid ? handle.type().wrap().changeReturnType(void.class) : handle.type().wrap();
+        try {
+            final CallSite site = LambdaMetafactory.metafactory(LOOKUP, samName, MethodType.methodType(functionalInterface), instantiated.erase(), handle, instantiated);
+            return site.getTarget().invoke();
+        } catch (final Throwable t) {
+            return null;
         }
     }
 
-    private static final class MethodParameters extends Parameters {
+    @SuppressWarnings("unchecked")
+    private static <T extends Throwable> RuntimeException sneakyThrow(final Throwable throwable) throws T {
+        throw (T) throwable;
+    }
 
+    private static final class MemberKey {
+
+        private static final int FIELD = -1;
+        private static final int METHOD = 0;
+        private static final int CONSTRUCTOR = 1;
+        private static final int FIELD_GETTER = 2;
+        private static final int FIELD_SETTER = 3;
+        private static final int METHOD_FUNCTION = 4;
+        private static final int METHOD_BICONSUMER = 5;
+        private static final int CONSTRUCTOR_SUPPLIER = 6;
+        private static final int CONSTRUCTOR_FUNCTION = 7;
+        private static final int FIELD_GETTER_FUNCTION = 8;
+        private static final int FIELD_SETTER_CONSUMER = 9;
+
+        private final int kind;
+        @NotNull
+        private final Class<?> owner;
         @NotNull
         private final String name;
+        @NotNull
+        private final Class<?>[] params;
+        private final int hash;
 
-        MethodParameters(final @NotNull String name, final @NotNull Class<?>... params) {
-            super(params);
+        MemberKey(final int kind, final @NotNull Class<?> owner, final @NotNull String name, final @NotNull Class<?>... params) {
+            this.kind = kind;
+            this.owner = owner;
             this.name = name;
+            this.params = params;
+            this.hash = 31 * (31 * (31 * kind + owner.hashCode()) + name.hashCode()) + Arrays.hashCode(params);
         }
 
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
             if (o == null || getClass() != o.getClass()) return false;
-            if (!super.equals(o)) return false;
-            MethodParameters that = (MethodParameters) o;
-            return name.equals(that.name);
+            MemberKey that = (MemberKey) o;
+            return kind == that.kind && owner == that.owner && name.equals(that.name) && Arrays.equals(params, that.params);
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(super.hashCode(), name);
+            return hash;
+        }
+    }
+
+    /**
+     * Snapshot of the lookup counters of {@link ReflUtils}. A hit means the lookup was answered from the cache, a miss means it had to go through reflection.
+     * Negative hits are hits for classes or members that don't exist.
+     */
+    public static final class LookupStatistics {
+
+        private static final int HIT = 0;
+        private static final int MISS = 1;
+        private static final int NEGATIVE_HIT = 2;
+        private static final int CLASS = 0;
+        private static final int METHOD = 3;
+        private static final int FIELD = 6;
+        private static final int CONSTRUCTOR = 9;
+        private static final int COUNTER_COUNT = 12;
+
+        private final long[] values;
+
+        private LookupStatistics(final long[] values) {
+            this.values = values;
+        }
+
+        public long getClassHits() {
+            return values[CLASS + HIT];
+        }
+
+        public long getClassMisses() {
+            return values[CLASS + MISS];
+        }
+
+        public long getMethodHits() {
+            return values[METHOD + HIT];
+        }
+
+        public long getMethodMisses() {
+            return values[METHOD + MISS];
+        }
+
+        public long getFieldHits() {
+            return values[FIELD + HIT];
+        }
+
+        public long getFieldMisses() {
+            return values[FIELD + MISS];
+        }
+
+        public long getConstructorHits() {
+            return values[CONSTRUCTOR + HIT];
         }
 
+        public long getConstructorMisses() {
+            return values[CONSTRUCTOR + MISS];
+        }
+
+        /**
+         * Gets how many cache hits were for classes or members that don't exist
+         */
+        public long getNegativeHits() {
+            return values[CLASS + NEGATIVE_HIT] + values[METHOD + NEGATIVE_HIT] + values[FIELD + NEGATIVE_HIT] + values[CONSTRUCTOR + NEGATIVE_HIT];
+        }
+
+        public long getHits() {
+            return getClassHits() + getMethodHits() + getFieldHits() + getConstructorHits();
+        }
 
+        public long getMisses() {
+            return getClassMisses() + getMethodMisses() + getFieldMisses() + getConstructorMisses();
+        }
+
+        @Override
+        public String toString() {
+            return "LookupStatistics{" +
+                    "classes=" + getClassHits() + "/" + getClassMisses() +
+                    ", methods=" + getMethodHits() + "/" + getMethodMisses() +
+                    ", fields=" + getFieldHits() + "/" + getFieldMisses() +
+                    ", constructors=" + getConstructorHits() + "/" + getConstructorMisses() +
+                    ", negativeHits=" + getNegativeHits() +
+                    '}';
+        }
     }
 }
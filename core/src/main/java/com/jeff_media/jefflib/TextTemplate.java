@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib;
+
+import com.jeff_media.jefflib.internal.text.ColorCodeParser;
+import com.jeff_media.jefflib.internal.text.PlaceholderParser;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.bukkit.OfflinePlayer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A text that has been parsed once into already colored literal parts and placeholders, so that rendering it only has to fill in the
+ * placeholders. Supports PlaceholderAPI placeholders like {@code %player_name%} and variables like {@code {name}}.
+ * <p>
+ * Placeholder values are colored on their own. If a placeholder is part of a gradient or of a color code, e.g. {@code <#%color%>}, the
+ * template instead colors the whole text after filling in the placeholders, just like {@link TextUtils#format(String, OfflinePlayer)} did
+ * before.
+ * <p>
+ * Templates are immutable and can be rendered from any thread. Use {@link TextUtils#getTemplate(String)} to get a cached template.
+ */
+public final class TextTemplate {
+
+    private static final char MARKER = '\uFDD0';
+
+    private final String text;
+    private final String[] tokens;
+    private final String[] rawParts;
+    @Nullable private final String[] coloredParts;
+    private final int coloredLength;
+
+    private TextTemplate(@NotNull final String text) {
+        this.text = text;
+        final List<String> tokens = new ArrayList<>();
+        final List<String> rawParts = new ArrayList<>();
+        final StringBuilder marked = new StringBuilder(text.length());
+        int last = 0;
+        int start = 0;
+        while (start < text.length()) {
+            final int end = findTokenEnd(text, start);
+            if (end == -1) {
+                start++;
+                continue;
+            }
+            rawParts.add(text.substring(last, start));
+            tokens.add(text.substring(start, end));
+            marked.append(text, last, start).append(MARKER);
+            start = last = end;
+        }
+        rawParts.add(text.substring(last));
+        marked.append(text, last, text.length());
+        this.tokens = tokens.toArray(new String[0]);
+        this.rawParts = rawParts.toArray(new String[0]);
+        this.coloredParts = colorParts(marked.toString(), this.tokens.length);
+        int length = 0;
+        if (coloredParts != null) {
+            for (final String part : coloredParts) {
+                length += part.length();
+            }
+        }
+        this.coloredLength = length;
+    }
+
+    /**
+     * Parses the given text into a template. This does not replace ItemsAdder emojis, see {@link TextUtils#getTemplate(String)} for that.
+     *
+     * @param text Text to parse
+     * @return Parsed template
+     */
+    @NotNull
+    public static TextTemplate compile(@NotNull final String text) {
+        return new TextTemplate(text);
+    }
+
+    /**
+     * Gets the end of the PlaceholderAPI placeholder or variable starting at the given index, or -1 if there's none
+     */
+    private static int findTokenEnd(@NotNull final String text, final int start) {
+        final char c = text.charAt(start);
+        if (c == '%') return PlaceholderParser.findPlaceholderEnd(text, start);
+        if (c != '{') return -1;
+        for (int i = start + 1; i < text.length(); i++) {
+            final char current = text.charAt(i);
+            if (current == '}') return i == start + 1 ? -1 : i + 1;
+            if (current == '{' || Character.isWhitespace(current)) return -1;
+        }
+        return -1;
+    }
+
+    /**
+     * Colors the text once and splits it at the markers. Returns null if the placeholders must be filled in before coloring.
+     */
+    @Nullable
+    private static String[] colorParts(@NotNull final String marked, final int placeholders) {
+        if (placeholders == 0) {
+            return new String[] {ColorCodeParser.color(marked)};
+        }
+        for (int i = 1; i < marked.length(); i++) {
+            if (marked.charAt(i) != MARKER) continue;
+            final char before = marked.charAt(i - 1);
+            if (before == '&' || before == '#' || (before == '/' && marked.startsWith("<#", i - 3))) {
+                return null;
+            }
+        }
+        if (ColorCodeParser.isInsideGradient(marked, MARKER)) {
+            return null;
+        }
+        final String colored = ColorCodeParser.color(marked);
+        final String[] parts = new String[placeholders + 1];
+        int part = 0;
+        int last = 0;
+        for (int i = 0; i < colored.length(); i++) {
+            if (colored.charAt(i) != MARKER) continue;
+            if (part == placeholders) return null;
+            parts[part++] = colored.substring(last, i);
+            last = i + 1;
+        }
+        if (part != placeholders) return null;
+        parts[part] = colored.substring(last);
+        return parts;
+    }
+
+    /**
+     * Gets the text this template was parsed from
+     */
+    @NotNull
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Gets the placeholders and variables used in this template, including their delimiters, e.g. {@code %player_name%} or {@code {name}}
+     */
+    @NotNull
+    public List<String> getPlaceholders() {
+        return Collections.unmodifiableList(Arrays.asList(tokens));
+    }
+
+    /**
+     * Renders this template, replacing PlaceholderAPI placeholders for the given player and applying colors
+     *
+     * @param player Player to translate placeholders for, or null
+     * @return Rendered text
+     */
+    @NotNull
+    public String render(@Nullable final OfflinePlayer player) {
+        return render(player, Collections.emptyMap());
+    }
+
+    /**
+     * Renders this template, replacing the given variables and PlaceholderAPI placeholders for the given player and applying colors
+     *
+     * @param player    Player to translate placeholders for, or null
+     * @param variables Variable values, keyed by the variable including its braces, e.g. {@code {name}}. Variables without a value are
+     *                  left as they are.
+     * @return Rendered text
+     */
+    @NotNull
+    public String render(@Nullable final OfflinePlayer player, @NotNull final Map<String, String> variables) {
+        if (coloredParts == null) {
+            final StringBuilder builder = new StringBuilder(text.length() + 16 * tokens.length);
+            for (int i = 0; i < tokens.length; i++) {
+                builder.append(rawParts[i]).append(resolve(tokens[i], player, variables));
+            }
+            // Every rendered text is different, so caching it would only push static texts out of TextUtils' color cache
+            return ColorCodeParser.color(builder.append(rawParts[tokens.length]).toString());
+        }
+        if (tokens.length == 0) {
+            return coloredParts[0];
+        }
+        final StringBuilder builder = new StringBuilder(coloredLength + 16 * tokens.length);
+        for (int i = 0; i < tokens.length; i++) {
+            builder.append(coloredParts[i]).append(ColorCodeParser.color(resolve(tokens[i], player, variables)));
+        }
+        return builder.append(coloredParts[tokens.length]).toString();
+    }
+
+    private static String resolve(@NotNull final String token, @Nullable final OfflinePlayer player, @NotNull final Map<String, String> variables) {
+        if (token.charAt(0) == '{') {
+            final String value = variables.get(token);
+            return value == null ? token : value;
+        }
+        return TextUtils.replacePlaceholders(token, player);
+    }
+
+    @Override
+    public String toString() {
+        return "TextTemplate{" + text + "}";
+    }
+}
@@ -17,19 +17,20 @@
 
 package com.jeff_media.jefflib;
 
-import com.jeff_media.jefflib.data.HexColor;
 import com.jeff_media.jefflib.internal.cherokee.StringUtils;
+import com.jeff_media.jefflib.internal.listeners.PlaceholderCacheListener;
+import com.jeff_media.jefflib.internal.text.ColorCodeParser;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import lombok.experimental.UtilityClass;
 import org.bukkit.Bukkit;
-import org.bukkit.ChatColor;
 import org.bukkit.OfflinePlayer;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
 import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.Nullable;
 
@@ -42,17 +43,13 @@ public class TextUtils {
     private static final int MIN_BANNER_WIDTH = 30;
     private static final char BANNER_CHAR = '#';
     private static final String EMPTY = "";
-    private static final String REGEX_HEX = "[\\da-fA-F][\\da-fA-F][\\da-fA-F][\\da-fA-F][\\da-fA-F][\\da-fA-F]";
-
-    private static final String REGEX_HEX_GRADIENT = "<#([\\da-fA-F][\\da-fA-F][\\da-fA-F][\\da-fA-F][\\da-fA-F][\\da-fA-F])>(.*?)<#/([\\da-fA-F][\\da-fA-F][\\da-fA-F][\\da-fA-F][\\da-fA-F][\\da-fA-F])>";
-    private static final Pattern PATTERN_HEX_GRADIENT = Pattern.compile(REGEX_HEX_GRADIENT);
-
-    private static final String REGEX_AMPERSAND_HASH = "&#(" + REGEX_HEX + ")";
-    private static final Pattern PATTERN_AMPERSAND_HASH = Pattern.compile(REGEX_AMPERSAND_HASH);
-    private static final String REGEX_XML_LIKE_HASH = "<#(" + REGEX_HEX + ")>";
-    private static final Pattern PATTERN_XML_LIKE_HASH = Pattern.compile(REGEX_XML_LIKE_HASH);
+    private static final int CACHE_SIZE = 1024;
+    private static final Map<String, String> COLOR_CACHE = createLruCache(CACHE_SIZE);
+    private static final Map<String, TextTemplate> TEMPLATE_CACHE = createLruCache(CACHE_SIZE);
     private static AtomicReference<Plugin> itemsAdderPlugin;
     private static AtomicReference<Plugin> placeholderApiPlugin;
+    private static volatile PlaceholderCache placeholderCache;
+    private static Listener placeholderCacheListener;
 
     /**
      * Prints a banner / headline to console
@@ -83,11 +80,35 @@ public class TextUtils {
      * @param player Player to apply placeholders for, or null
      * @return Translated text
      */
-    public static String format(String text, @Nullable final OfflinePlayer player) {
-        text = replaceEmojis(text);
-        text = replacePlaceholders(text, player);
-        text = color(text);
-        return text;
+    public static String format(final String text, @Nullable final OfflinePlayer player) {
+        return getTemplate(text).render(player);
+    }
+
+    /**
+     * Gets the {@link TextTemplate} for the given text, with emojis already replaced. Templates are cached, so getting the template
+     * for the same text again is cheap.
+     * <p>
+     * Emojis are only replaced when the template is compiled. Templates compiled before ItemsAdder has loaded its font images
+     * keep the raw emoji names, so call {@link #clearCaches()} once ItemsAdder has finished loading (ItemsAdderLoadDataEvent).
+     *
+     * @param text Text to parse
+     * @return Template for the given text
+     */
+    public static TextTemplate getTemplate(final String text) {
+        TextTemplate template = TEMPLATE_CACHE.get(text);
+        if (template == null) {
+            template = TextTemplate.compile(replaceEmojis(text));
+            TEMPLATE_CACHE.put(text, template);
+        }
+        return template;
+    }
+
+    /**
+     * Clears the caches used by {@link #color(String)} and {@link #getTemplate(String)}
+     */
+    public static void clearCaches() {
+        COLOR_CACHE.clear();
+        TEMPLATE_CACHE.clear();
     }
 
     /**
@@ -123,74 +144,80 @@ public class TextUtils {
             placeholderApiPlugin = new AtomicReference<>(Bukkit.getPluginManager().getPlugin("PlaceholderAPI"));
         }
         if (placeholderApiPlugin.get() != null) {
-            try {
-                text = me.clip.placeholderapi.PlaceholderAPI.setPlaceholders(player, text);
-            } catch (Throwable ignored) {
-
+            final PlaceholderCache cache = placeholderCache;
+            if (cache != null && player != null) {
+                return cache.replace(text, player);
             }
+            text = resolvePlaceholders(player, text);
         }
         return text;
     }
 
+    private static String resolvePlaceholders(@Nullable final OfflinePlayer player, final String text) {
+        try {
+            return me.clip.placeholderapi.PlaceholderAPI.setPlaceholders(player, text);
+        } catch (Throwable ignored) {
+            return text;
+        }
+    }
+
     /**
-     * Replaces color codes using &amp;. Also supports hex colors using <pre>&amp;x&amp;r&amp;r&amp;g&amp;g&amp;b&amp;b</pre>, <pre>&amp;#rrggbb</pre> and <pre>&lt;#rrggbb></pre>,
-     * and gradients using <pre>&lt;#rrggbb> &lt;#/rrggbb></pre>
+     * Enables caching PlaceholderAPI results per player, see {@link PlaceholderCache}. Replaces the previous cache, if any.
      *
-     * @param text Text to translate
-     * @return Translated text
+     * @param options Options for the cache
+     * @return The new cache
      */
-    public static String color(String text) {
-        //text = replaceRegexWithGroup(text, PATTERN_AMPERSAND_HASH, 1, TextUtils::addAmpersandsToHex);
-        text = text.replace("&&", "{ampersand}");
-        text = replaceGradients(text);
-        text = replaceRegexWithGroup(text, PATTERN_XML_LIKE_HASH, 1, TextUtils::addAmpersandsToHex);
-        text = replaceRegexWithGroup(text, PATTERN_AMPERSAND_HASH, 1, TextUtils::addAmpersandsToHex);
-        text = ChatColor.translateAlternateColorCodes('&', text);
-        text = text.replace("{ampersand}", "&");
-        return text;
+    public static PlaceholderCache enablePlaceholderCache(final PlaceholderCache.Options options) {
+        disablePlaceholderCache();
+        final PlaceholderCache cache = PlaceholderCache.create(options, TextUtils::resolvePlaceholders);
+        placeholderCacheListener = new PlaceholderCacheListener(cache);
+        Bukkit.getPluginManager().registerEvents(placeholderCacheListener, JeffLib.getPlugin());
+        placeholderCache = cache;
+        return cache;
     }
 
-    private static String replaceGradients(String text) {
-
-        text = text.replaceAll("<#/([\\da-fA-F][\\da-fA-F][\\da-fA-F][\\da-fA-F][\\da-fA-F][\\da-fA-F])>", "<#/$1><#$1>");
-
-        final Matcher matcher = PATTERN_HEX_GRADIENT.matcher(text);
-        final StringBuffer sb = new StringBuffer();
-        while (matcher.find()) {
-            final HexColor startColor = new HexColor(matcher.group(1));
-            final HexColor endColor = new HexColor(matcher.group(3));
-            final String partText = matcher.group(2);
-            matcher.appendReplacement(sb, HexColor.applyGradient(partText, startColor, endColor));
-        }
-        matcher.appendTail(sb);
-        String result = sb.toString();
-        while (result.matches(".*&x&[\\da-zA-Z]&[\\da-zA-Z]&[\\da-zA-Z]&[\\da-zA-Z]&[\\da-zA-Z]&[\\da-zA-Z]$")) {
-            result = result.substring(0, result.length() - 14);
+    /**
+     * Disables the placeholder cache, if it was enabled
+     */
+    public static void disablePlaceholderCache() {
+        placeholderCache = null;
+        if (placeholderCacheListener != null) {
+            HandlerList.unregisterAll(placeholderCacheListener);
+            placeholderCacheListener = null;
         }
-        return result;
     }
 
-    @SuppressWarnings("SameParameterValue")
-    private static String replaceRegexWithGroup(final CharSequence text, final Pattern pattern, final int group, final Function<String, String> function) {
-        final Matcher matcher = pattern.matcher(text);
-        final StringBuffer sb = new StringBuffer();
-        while (matcher.find()) {
-            matcher.appendReplacement(sb, function.apply(matcher.group(group)));
-        }
-        matcher.appendTail(sb);
-        return sb.toString();
+    /**
+     * Gets the placeholder cache, or null if it's not enabled
+     */
+    @Nullable
+    public static PlaceholderCache getPlaceholderCache() {
+        return placeholderCache;
     }
 
-    private static String addAmpersandsToHex(final String hex) {
-        if (hex.length() != 6) {
-            throw new IllegalArgumentException("Hex-Codes must always have 6 letters.");
-        }
-        final char[] chars = hex.toCharArray();
-        final StringBuilder sb = new StringBuilder("&x");
-        for (final char aChar : chars) {
-            sb.append("&").append(aChar);
+    /**
+     * Replaces color codes using &amp;. Also supports hex colors using <pre>&amp;x&amp;r&amp;r&amp;g&amp;g&amp;b&amp;b</pre>, <pre>&amp;#rrggbb</pre> and <pre>&lt;#rrggbb></pre>,
+     * and gradients using <pre>&lt;#rrggbb> &lt;#/rrggbb></pre>
+     *
+     * @param text Text to translate
+     * @return Translated text
+     */
+    public static String color(final String text) {
+        String colored = COLOR_CACHE.get(text);
+        if (colored == null) {
+            colored = ColorCodeParser.color(text);
+            COLOR_CACHE.put(text, colored);
         }
-        return sb.toString();
+        return colored;
+    }
+
+    private static <K, V> Map<K, V> createLruCache(final int maxSize) {
+        return Collections.synchronizedMap(new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        });
     }
 
     /**
@@ -28,11 +28,28 @@ public class ByteCounter implements DataOutput {
 
     @Getter
     private int bytes = 0;
+    private final boolean upperBound;
+
+    public ByteCounter() {
+        this(false);
+    }
+
+    private ByteCounter(final boolean upperBound) {
+        this.upperBound = upperBound;
+    }
+
+    /**
+     * Creates a ByteCounter that doesn't look at the characters of Strings written using {@link #writeUTF(String)}, but
+     * assumes the worst case of 3 bytes per character. The result is never smaller than the actual size.
+     */
+    public static ByteCounter upperBound() {
+        return new ByteCounter(true);
+    }
 
     public static long getUTFLength(final @NotNull String s) {
         long length = 0;
-        char[] chars = s.toCharArray();
-        for (char c : chars) {
+        for (int i = 0, size = s.length(); i < size; i++) {
+            final char c = s.charAt(i);
             if (c >= 0x0001 && c <= 0x007F) {
                 length++;
             } else if (c > 0x07FF) {
@@ -111,6 +128,6 @@ public class ByteCounter implements DataOutput {
 
     @Override
     public void writeUTF(final String s) {
-        bytes += 2 + getUTFLength(s);
+        bytes += 2 + (upperBound ? 3L * s.length() : getUTFLength(s));
     }
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.data;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.UUID;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Converts values of a {@link ChunkDataStore} from and to bytes. Every distinct value is only written once per
+ * section, so codecs don't have to be particularly compact.
+ * <p>
+ * Values must implement {@link Object#equals(Object)} and {@link Object#hashCode()} properly.
+ *
+ * @param <T> Value type
+ */
+public interface ChunkDataCodec<T> {
+
+    ChunkDataCodec<Boolean> BOOLEAN = of(DataOutput::writeBoolean, DataInput::readBoolean);
+    ChunkDataCodec<Integer> INTEGER = of(DataOutput::writeInt, DataInput::readInt);
+    ChunkDataCodec<Long> LONG = of(DataOutput::writeLong, DataInput::readLong);
+    ChunkDataCodec<String> STRING = of(DataOutput::writeUTF, DataInput::readUTF);
+    ChunkDataCodec<UUID> UUID = of((out, value) -> {
+        out.writeLong(value.getMostSignificantBits());
+        out.writeLong(value.getLeastSignificantBits());
+    }, in -> new UUID(in.readLong(), in.readLong()));
+
+    /**
+     * Writes a value
+     */
+    void write(@NotNull DataOutput out, @NotNull T value) throws IOException;
+
+    /**
+     * Reads a value that has been written using {@link #write(DataOutput, Object)}
+     */
+    @NotNull
+    T read(@NotNull DataInput in) throws IOException;
+
+    /**
+     * Creates a codec from the given writer and reader
+     */
+    static <T> ChunkDataCodec<T> of(@NotNull final Writer<T> writer, @NotNull final Reader<T> reader) {
+        return new ChunkDataCodec<T>() {
+            @Override
+            public void write(@NotNull final DataOutput out, @NotNull final T value) throws IOException {
+                writer.write(out, value);
+            }
+
+            @NotNull
+            @Override
+            public T read(@NotNull final DataInput in) throws IOException {
+                return reader.read(in);
+            }
+        };
+    }
+
+    /**
+     * Creates a codec that stores enum constants by their name, so that adding or reordering constants doesn't break
+     * existing data
+     */
+    static <E extends Enum<E>> ChunkDataCodec<E> ofEnum(@NotNull final Class<E> enumClass) {
+        return of((out, value) -> out.writeUTF(value.name()), in -> Enum.valueOf(enumClass, in.readUTF()));
+    }
+
+    @FunctionalInterface
+    interface Writer<T> {
+        void write(DataOutput out, T value) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface Reader<T> {
+        T read(DataInput in) throws IOException;
+    }
+}
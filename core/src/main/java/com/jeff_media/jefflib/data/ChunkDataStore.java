@@ -0,0 +1,418 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.data;
+
+import com.jeff_media.jefflib.JeffLib;
+import com.jeff_media.jefflib.McVersion;
+import com.jeff_media.jefflib.WorldUtils;
+import com.jeff_media.jefflib.internal.chunkdata.PalettedSection;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldSaveEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Stores one value per block inside the chunk's PersistentDataContainer. Requires 1.16.3+.
+ * <p>
+ * Every section is palette-compressed: each distinct value is stored once, and every block only stores the palette
+ * index using 1, 2, 4, 8 or 16 bits. A store that only ever contains a single value therefore needs 512 bytes per
+ * non-empty section. Empty sections are not stored at all.
+ * <p>
+ * Data is only kept in memory while the chunk is loaded. Once {@link #register()} has been called, chunks are loaded
+ * on ChunkLoadEvent, written on WorldSaveEvent and written and removed from memory on ChunkUnloadEvent. Without
+ * registering, {@link #loadChunk(Chunk)}, {@link #saveChunk(Chunk)} and {@link #unloadChunk(Chunk)} have to be called
+ * manually.
+ * <p>
+ * Must only be used from the main thread.
+ * <p>
+ * Example:
+ * <pre>{@code
+ * ChunkDataStore<UUID> owners = new ChunkDataStore<>(new NamespacedKey(plugin, "ore-owner"), ChunkDataCodec.UUID);
+ * owners.register();
+ * owners.set(block, player.getUniqueId());
+ * }</pre>
+ *
+ * @param <T> Value type
+ */
+public class ChunkDataStore<T> {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private final NamespacedKey key;
+    private final ChunkDataCodec<T> codec;
+    private final Map<Integer, NamespacedKey> sectionKeys = new HashMap<>();
+    private final Map<UUID, Map<Long, ChunkData<T>>> chunks = new HashMap<>();
+    private Listener listener;
+
+    /**
+     * Creates a new ChunkDataStore
+     *
+     * @param key   Key used to store the data. Every section gets its own key, named {@code <key>.<sectionY>}
+     * @param codec Codec used to read and write values
+     */
+    public ChunkDataStore(@NotNull final NamespacedKey key, @NotNull final ChunkDataCodec<T> codec) {
+        if (!McVersion.current().isAtLeast(1, 16, 3)) {
+            throw new UnsupportedOperationException("ChunkDataStore requires 1.16.3 or later");
+        }
+        this.key = key;
+        this.codec = codec;
+    }
+
+    /**
+     * Gets the key used to store the data
+     */
+    @NotNull
+    public NamespacedKey getKey() {
+        return key;
+    }
+
+    /**
+     * Registers listeners that load, save and unload the data together with the chunks
+     */
+    public void register() {
+        if (listener != null) return;
+        listener = new LifecycleListener();
+        Bukkit.getPluginManager().registerEvents(listener, JeffLib.getPlugin());
+    }
+
+    /**
+     * Unregisters the listeners, saves all data and removes it from memory
+     */
+    public void unregister() {
+        if (listener != null) {
+            HandlerList.unregisterAll(listener);
+            listener = null;
+        }
+        unloadAll();
+    }
+
+    /**
+     * Gets the value of a block
+     *
+     * @return The value, or null if the block has no value
+     */
+    @Nullable
+    public T get(@NotNull final Block block) {
+        return get(block.getWorld(), block.getX(), block.getY(), block.getZ());
+    }
+
+    /**
+     * Gets the value of a block. Loads the chunk if it isn't loaded.
+     *
+     * @return The value, or null if the block has no value
+     */
+    @Nullable
+    public T get(@NotNull final World world, final int x, final int y, final int z) {
+        final ChunkData<T> data = getChunkData(world, x >> 4, z >> 4);
+        final PalettedSection<T> section = data.getSection(y >> 4);
+        if (section == null) return null;
+        return section.get(PalettedSection.index(x, y, z));
+    }
+
+    /**
+     * Sets the value of a block
+     *
+     * @param value The new value, or null to remove the value
+     */
+    public void set(@NotNull final Block block, @Nullable final T value) {
+        set(block.getWorld(), block.getX(), block.getY(), block.getZ(), value);
+    }
+
+    /**
+     * Sets the value of a block. Loads the chunk if it isn't loaded.
+     *
+     * @param value The new value, or null to remove the value
+     */
+    public void set(@NotNull final World world, final int x, final int y, final int z, @Nullable final T value) {
+        final ChunkData<T> data = getChunkData(world, x >> 4, z >> 4);
+        final int sectionY = y >> 4;
+        if (sectionY < data.minSection || sectionY >= data.minSection + data.sections.length) return;
+        PalettedSection<T> section = data.getSection(sectionY);
+        if (section == null) {
+            if (value == null) return;
+            section = new PalettedSection<>();
+            data.sections[sectionY - data.minSection] = section;
+        }
+        if (section.set(PalettedSection.index(x, y, z), value)) {
+            data.dirty = true;
+        }
+    }
+
+    /**
+     * Removes the value of a block
+     */
+    public void remove(@NotNull final Block block) {
+        set(block, null);
+    }
+
+    /**
+     * Gets all blocks of a chunk that have a value
+     */
+    @NotNull
+    public Map<Block, T> getAll(@NotNull final Chunk chunk) {
+        final Map<Block, T> result = new HashMap<>();
+        final ChunkData<T> data = getChunkData(chunk.getWorld(), chunk.getX(), chunk.getZ());
+        for (int i = 0; i < data.sections.length; i++) {
+            final PalettedSection<T> section = data.sections[i];
+            if (section == null || section.isEmpty()) continue;
+            final int baseY = (data.minSection + i) << 4;
+            for (int index = 0; index < PalettedSection.SIZE; index++) {
+                final T value = section.get(index);
+                if (value != null) {
+                    result.put(chunk.getBlock(index & 0xF, baseY + (index >> 8), (index >> 4) & 0xF), value);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes all values of a chunk
+     */
+    public void clear(@NotNull final Chunk chunk) {
+        final ChunkData<T> data = getChunkData(chunk.getWorld(), chunk.getX(), chunk.getZ());
+        for (int i = 0; i < data.sections.length; i++) {
+            if (data.sections[i] != null) {
+                data.sections[i] = null;
+                data.dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Reads the data of a chunk into memory. Called automatically on ChunkLoadEvent when registered.
+     */
+    public void loadChunk(@NotNull final Chunk chunk) {
+        getChunks(chunk.getWorld()).computeIfAbsent(getChunkKey(chunk.getX(), chunk.getZ()), __ -> read(chunk));
+    }
+
+    /**
+     * Writes the data of a chunk if it has been changed. Called automatically on WorldSaveEvent when registered.
+     */
+    public void saveChunk(@NotNull final Chunk chunk) {
+        final Map<Long, ChunkData<T>> worldChunks = chunks.get(chunk.getWorld().getUID());
+        if (worldChunks == null) return;
+        final ChunkData<T> data = worldChunks.get(getChunkKey(chunk.getX(), chunk.getZ()));
+        if (data != null && data.dirty) {
+            write(chunk, data);
+        }
+    }
+
+    /**
+     * Writes the data of a chunk and removes it from memory. Called automatically on ChunkUnloadEvent when registered.
+     */
+    public void unloadChunk(@NotNull final Chunk chunk) {
+        saveChunk(chunk);
+        final Map<Long, ChunkData<T>> worldChunks = chunks.get(chunk.getWorld().getUID());
+        if (worldChunks == null) return;
+        worldChunks.remove(getChunkKey(chunk.getX(), chunk.getZ()));
+        if (worldChunks.isEmpty()) {
+            chunks.remove(chunk.getWorld().getUID());
+        }
+    }
+
+    /**
+     * Writes all changed chunks of a world
+     */
+    public void save(@NotNull final World world) {
+        final Map<Long, ChunkData<T>> worldChunks = chunks.get(world.getUID());
+        if (worldChunks == null) return;
+        for (final Map.Entry<Long, ChunkData<T>> entry : worldChunks.entrySet()) {
+            if (!entry.getValue().dirty) continue;
+            final long chunkKey = entry.getKey();
+            write(world.getChunkAt((int) (chunkKey >> 32), (int) chunkKey), entry.getValue());
+        }
+    }
+
+    /**
+     * Writes all changed chunks of all worlds
+     */
+    public void saveAll() {
+        for (final UUID uid : chunks.keySet()) {
+            final World world = Bukkit.getWorld(uid);
+            if (world != null) save(world);
+        }
+    }
+
+    /**
+     * Writes all changed chunks of a world and removes them from memory
+     */
+    public void unload(@NotNull final World world) {
+        save(world);
+        chunks.remove(world.getUID());
+    }
+
+    /**
+     * Writes all changed chunks and removes them from memory
+     */
+    public void unloadAll() {
+        saveAll();
+        chunks.clear();
+    }
+
+    /**
+     * Gets the amount of chunks currently held in memory
+     */
+    public int getLoadedChunkCount() {
+        int count = 0;
+        for (final Map<Long, ChunkData<T>> worldChunks : chunks.values()) {
+            count += worldChunks.size();
+        }
+        return count;
+    }
+
+    private ChunkData<T> getChunkData(final World world, final int chunkX, final int chunkZ) {
+        final long chunkKey = getChunkKey(chunkX, chunkZ);
+        final ChunkData<T> cached = getChunks(world).get(chunkKey);
+        if (cached != null) return cached;
+        // Loading the chunk calls ChunkLoadEvent, so the listener might already have read the data in the meantime
+        final Chunk chunk = world.getChunkAt(chunkX, chunkZ);
+        final Map<Long, ChunkData<T>> worldChunks = getChunks(world);
+        final ChunkData<T> loaded = worldChunks.get(chunkKey);
+        if (loaded != null) return loaded;
+        final ChunkData<T> data = read(chunk);
+        worldChunks.put(chunkKey, data);
+        return data;
+    }
+
+    private Map<Long, ChunkData<T>> getChunks(final World world) {
+        return chunks.computeIfAbsent(world.getUID(), __ -> new HashMap<>());
+    }
+
+    private NamespacedKey getSectionKey(final int sectionY) {
+        return sectionKeys.computeIfAbsent(sectionY, __ -> new NamespacedKey(key.getNamespace(), key.getKey() + "." + sectionY));
+    }
+
+    private ChunkData<T> read(final Chunk chunk) {
+        final World world = chunk.getWorld();
+        final int minSection = WorldUtils.getWorldMinHeight(world) >> 4;
+        final ChunkData<T> data = new ChunkData<>(minSection, ((world.getMaxHeight() - 1) >> 4) - minSection + 1);
+        final PersistentDataContainer pdc = chunk.getPersistentDataContainer();
+        for (int i = 0; i < data.sections.length; i++) {
+            final byte[] bytes = pdc.get(getSectionKey(minSection + i), PersistentDataType.BYTE_ARRAY);
+            if (bytes == null) continue;
+            try (final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+                final byte version = in.readByte();
+                if (version != FORMAT_VERSION) {
+                    throw new IOException("Unknown format version " + version);
+                }
+                data.sections[i] = PalettedSection.read(in, codec);
+            } catch (final IOException exception) {
+                JeffLib.getLogger().log(Level.WARNING, "[JeffLib] Could not read chunk data " + key + " of chunk " + chunk.getX() + "/" + chunk.getZ() + " in world " + world.getName(), exception);
+            }
+        }
+        return data;
+    }
+
+    private void write(final Chunk chunk, final ChunkData<T> data) {
+        final PersistentDataContainer pdc = chunk.getPersistentDataContainer();
+        for (int i = 0; i < data.sections.length; i++) {
+            final NamespacedKey sectionKey = getSectionKey(data.minSection + i);
+            final PalettedSection<T> section = data.sections[i];
+            if (section == null || section.isEmpty()) {
+                data.sections[i] = null;
+                pdc.remove(sectionKey);
+                continue;
+            }
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 + 2 + PalettedSection.SIZE * section.getBitsPerBlock() / 8);
+            try (final DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeByte(FORMAT_VERSION);
+                section.write(out, codec);
+            } catch (final IOException exception) {
+                throw new IllegalStateException("Could not write chunk data " + key, exception);
+            }
+            pdc.set(sectionKey, PersistentDataType.BYTE_ARRAY, bytes.toByteArray());
+        }
+        data.dirty = false;
+    }
+
+    private static long getChunkKey(final int chunkX, final int chunkZ) {
+        return (long) chunkX << 32 | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    private static final class ChunkData<T> {
+        private final int minSection;
+        private final PalettedSection<T>[] sections;
+        private boolean dirty;
+
+        @SuppressWarnings("unchecked")
+        private ChunkData(final int minSection, final int sectionCount) {
+            this.minSection = minSection;
+            this.sections = new PalettedSection[sectionCount];
+        }
+
+        @Nullable
+        private PalettedSection<T> getSection(final int sectionY) {
+            final int index = sectionY - minSection;
+            if (index < 0 || index >= sections.length) return null;
+            return sections[index];
+        }
+    }
+
+    private final class LifecycleListener implements Listener {
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onChunkLoad(final ChunkLoadEvent event) {
+            loadChunk(event.getChunk());
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onChunkUnload(final ChunkUnloadEvent event) {
+            unloadChunk(event.getChunk());
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onWorldSave(final WorldSaveEvent event) {
+            save(event.getWorld());
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onWorldUnload(final WorldUnloadEvent event) {
+            unload(event.getWorld());
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onDisable(final PluginDisableEvent event) {
+            if (event.getPlugin() != JeffLib.getPlugin()) return;
+            unregister();
+        }
+    }
+}
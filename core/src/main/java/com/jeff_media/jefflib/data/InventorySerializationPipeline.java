@@ -0,0 +1,474 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.jeff_media.jefflib.data;
+
+import com.jeff_media.jefflib.ItemStackSerializer;
+import com.jeff_media.jefflib.Tasks;
+import com.jeff_media.jefflib.internal.annotations.NMS;
+import java.io.ByteArrayOutputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Serializes many inventories without blocking the main thread for long. Inventories are copied on the main thread, optionally
+ * spread over several ticks, and then turned into bytes using {@link ItemStackSerializer#write(ItemStack[], java.io.OutputStream, boolean)}
+ * on a pool of worker threads. When the workers fall behind, copying pauses until there's room in the queue again.
+ * <p>
+ * Example:
+ * <pre>{@code
+ * InventorySerializationPipeline pipeline = new InventorySerializationPipeline(
+ *         new InventorySerializationPipeline.Options().snapshotsPerTick(50).compress(true));
+ * InventorySerializationPipeline.Batch<UUID> batch = pipeline.submitPlayers(Bukkit.getOnlinePlayers());
+ * batch.getFutures().forEach((uuid, future) -> future.thenAccept(bytes -> database.save(uuid, bytes)));
+ * batch.getSummary().thenAccept(summary -> getLogger().info(summary.toString()));
+ * }</pre>
+ * Call {@link #shutdown()} when the pipeline isn't needed anymore, e.g. in onDisable.
+ *
+ * @nms
+ */
+@NMS
+public final class InventorySerializationPipeline {
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final int snapshotsPerTick;
+    private final long snapshotNanosPerTick;
+    private final boolean compress;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final int maxQueued;
+    private final Semaphore queue;
+    private volatile boolean shutdown;
+
+    /**
+     * Creates a new pipeline using default {@link Options}
+     */
+    public InventorySerializationPipeline() {
+        this(new Options());
+    }
+
+    /**
+     * Creates a new pipeline
+     *
+     * @param options Options
+     */
+    public InventorySerializationPipeline(@NotNull final Options options) {
+        this.snapshotsPerTick = options.snapshotsPerTick;
+        this.snapshotNanosPerTick = options.snapshotNanosPerTick;
+        this.compress = options.compress;
+        this.ownsExecutor = options.executor == null;
+        this.executor = ownsExecutor ? Executors.newFixedThreadPool(options.threads, new WorkerThreadFactory()) : options.executor;
+        this.maxQueued = options.maxQueued;
+        this.queue = new Semaphore(maxQueued);
+    }
+
+    /**
+     * Serializes the inventories of the given players. Has to be called from the main thread.
+     *
+     * @param players Players
+     * @return Batch holding one future per player
+     */
+    @NotNull
+    public Batch<UUID> submitPlayers(@NotNull final Collection<? extends Player> players) {
+        final Map<UUID, Inventory> inventories = new LinkedHashMap<>();
+        for (final Player player : players) {
+            inventories.put(player.getUniqueId(), player.getInventory());
+        }
+        return submit(inventories);
+    }
+
+    /**
+     * Serializes the given inventories. Has to be called from the main thread. The first inventories are copied right away,
+     * the rest during the next ticks.
+     *
+     * @param inventories Inventories by any key, e.g. the owner's UUID
+     * @param <K>         Type of the key
+     * @return Batch holding one future per key
+     */
+    @NotNull
+    public <K> Batch<K> submit(@NotNull final Map<K, ? extends Inventory> inventories) {
+        if (!Bukkit.isPrimaryThread()) {
+            throw new IllegalStateException("Inventories have to be submitted from the main thread");
+        }
+        if (shutdown) {
+            throw new IllegalStateException("Pipeline has been shut down");
+        }
+        final Batch<K> batch = new Batch<>(inventories);
+        if (!batch.snapshotTick()) {
+            Tasks.repeat(task -> {
+                if (batch.snapshotTick()) {
+                    task.cancel();
+                }
+            }, 1, 1);
+        }
+        return batch;
+    }
+
+    /**
+     * Gets how many copied inventories are currently waiting to be serialized or being serialized
+     */
+    public int getQueued() {
+        return maxQueued - queue.availablePermits();
+    }
+
+    /**
+     * Stops accepting new inventories. Inventories that haven't been copied yet fail with a {@link CancellationException},
+     * copied ones are still serialized. The worker pool is shut down afterwards, unless it was passed in through {@link Options#executor(ExecutorService)}.
+     */
+    public void shutdown() {
+        shutdown = true;
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    private static ItemStack[] copy(final ItemStack[] contents) {
+        for (int i = 0; i < contents.length; i++) {
+            if (contents[i] != null) {
+                // getContents() returns mirrors of the server's items, so they have to be copied before leaving the main thread
+                contents[i] = contents[i].clone();
+            }
+        }
+        return contents;
+    }
+
+    /**
+     * One call of {@link #submit(Map)}
+     *
+     * @param <K> Type of the key
+     */
+    public final class Batch<K> {
+
+        private final Iterator<? extends Map.Entry<K, ? extends Inventory>> pending;
+        private final Map<K, CompletableFuture<byte[]>> futures;
+        private final CompletableFuture<Summary> summary = new CompletableFuture<>();
+        private final long startNanos = System.nanoTime();
+        private final AtomicInteger remaining;
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong serializeNanos = new AtomicLong();
+        private final AtomicLong snapshotNanos = new AtomicLong();
+        private final AtomicLong maxTickNanos = new AtomicLong();
+        private final AtomicInteger ticks = new AtomicInteger();
+
+        private Batch(final Map<K, ? extends Inventory> inventories) {
+            final Map<K, CompletableFuture<byte[]>> futures = new LinkedHashMap<>();
+            for (final K key : inventories.keySet()) {
+                futures.put(key, new CompletableFuture<>());
+            }
+            this.futures = Collections.unmodifiableMap(futures);
+            this.pending = new LinkedHashMap<K, Inventory>(inventories).entrySet().iterator();
+            this.remaining = new AtomicInteger(futures.size());
+            if (futures.isEmpty()) {
+                complete();
+            }
+        }
+
+        /**
+         * Gets the futures for all keys. Each one completes with the serialized inventory, or exceptionally if it couldn't be serialized.
+         */
+        @NotNull
+        public Map<K, CompletableFuture<byte[]>> getFutures() {
+            return futures;
+        }
+
+        /**
+         * Gets the future for the given key, or null if it wasn't part of this batch
+         */
+        @Nullable
+        public CompletableFuture<byte[]> getFuture(@NotNull final K key) {
+            return futures.get(key);
+        }
+
+        /**
+         * Gets a future that completes with the timing summary once all inventories of this batch are done, including failed ones
+         */
+        @NotNull
+        public CompletableFuture<Summary> getSummary() {
+            return summary;
+        }
+
+        /**
+         * Copies as many inventories as the budget and the queue allow
+         *
+         * @return true if all inventories have been copied
+         */
+        private boolean snapshotTick() {
+            final long tickStart = System.nanoTime();
+            int copied = 0;
+            while (pending.hasNext()) {
+                if (shutdown) {
+                    while (pending.hasNext()) {
+                        fail(pending.next().getKey(), new CancellationException("Pipeline has been shut down"));
+                    }
+                    break;
+                }
+                if (copied >= snapshotsPerTick || (copied > 0 && System.nanoTime() - tickStart >= snapshotNanosPerTick)) break;
+                if (!queue.tryAcquire()) break; // Workers are behind, try again next tick
+                final Map.Entry<K, ? extends Inventory> entry = pending.next();
+                final ItemStack[] snapshot;
+                try {
+                    snapshot = copy(entry.getValue().getContents());
+                } catch (final RuntimeException exception) {
+                    queue.release();
+                    fail(entry.getKey(), exception);
+                    continue;
+                }
+                copied++;
+                serialize(entry.getKey(), snapshot);
+            }
+            final long tickNanos = System.nanoTime() - tickStart;
+            ticks.incrementAndGet();
+            snapshotNanos.addAndGet(tickNanos);
+            if (tickNanos > maxTickNanos.get()) {
+                maxTickNanos.set(tickNanos);
+            }
+            return !pending.hasNext();
+        }
+
+        private void serialize(final K key, final ItemStack[] snapshot) {
+            final CompletableFuture<byte[]> future = futures.get(key);
+            try {
+                executor.execute(() -> {
+                    final long start = System.nanoTime();
+                    try {
+                        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                        ItemStackSerializer.write(snapshot, out, compress);
+                        bytes.addAndGet(out.size());
+                        future.complete(out.toByteArray());
+                    } catch (final Throwable throwable) {
+                        failed.incrementAndGet();
+                        future.completeExceptionally(throwable);
+                    } finally {
+                        serializeNanos.addAndGet(System.nanoTime() - start);
+                        queue.release();
+                        done();
+                    }
+                });
+            } catch (final RejectedExecutionException exception) {
+                queue.release();
+                fail(key, exception);
+            }
+        }
+
+        private void fail(final K key, final Throwable throwable) {
+            failed.incrementAndGet();
+            futures.get(key).completeExceptionally(throwable);
+            done();
+        }
+
+        private void done() {
+            if (remaining.decrementAndGet() == 0) {
+                complete();
+            }
+        }
+
+        private void complete() {
+            summary.complete(new Summary(futures.size(), failed.get(), bytes.get(), ticks.get(),
+                    System.nanoTime() - startNanos, snapshotNanos.get(), maxTickNanos.get(), serializeNanos.get()));
+        }
+    }
+
+    /**
+     * Timing summary of a {@link Batch}
+     */
+    public static final class Summary {
+
+        private final int inventories;
+        private final int failed;
+        private final long bytes;
+        private final int ticks;
+        private final long elapsedNanos;
+        private final long snapshotNanos;
+        private final long maxTickNanos;
+        private final long serializeNanos;
+
+        private Summary(final int inventories, final int failed, final long bytes, final int ticks, final long elapsedNanos,
+                        final long snapshotNanos, final long maxTickNanos, final long serializeNanos) {
+            this.inventories = inventories;
+            this.failed = failed;
+            this.bytes = bytes;
+            this.ticks = ticks;
+            this.elapsedNanos = elapsedNanos;
+            this.snapshotNanos = snapshotNanos;
+            this.maxTickNanos = maxTickNanos;
+            this.serializeNanos = serializeNanos;
+        }
+
+        /**
+         * Gets the amount of inventories in this batch, including failed ones
+         */
+        public int getInventories() {
+            return inventories;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        /**
+         * Gets the total size of all serialized inventories
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Gets over how many ticks copying the inventories was spread
+         */
+        public int getTicks() {
+            return ticks;
+        }
+
+        /**
+         * Gets the time from submitting until the last inventory was done
+         */
+        public double getElapsedMillis() {
+            return elapsedNanos / 1_000_000D;
+        }
+
+        /**
+         * Gets the total time spent copying inventories on the main thread
+         */
+        public double getSnapshotMillis() {
+            return snapshotNanos / 1_000_000D;
+        }
+
+        /**
+         * Gets the longest time spent copying inventories during a single tick
+         */
+        public double getMaxSnapshotMillisPerTick() {
+            return maxTickNanos / 1_000_000D;
+        }
+
+        /**
+         * Gets the total time the worker threads spent serializing, summed up over all threads
+         */
+        public double getSerializeMillis() {
+            return serializeNanos / 1_000_000D;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d inventories (%d failed, %d bytes) in %.1fms: main thread %.2fms over %d ticks (max %.2fms/tick), workers %.1fms",
+                    inventories, failed, bytes, getElapsedMillis(), getSnapshotMillis(), ticks, getMaxSnapshotMillisPerTick(), getSerializeMillis());
+        }
+    }
+
+    /**
+     * Options for an {@link InventorySerializationPipeline}
+     */
+    public static final class Options {
+
+        private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        private int maxQueued = 256;
+        private int snapshotsPerTick = Integer.MAX_VALUE;
+        private long snapshotNanosPerTick = Long.MAX_VALUE;
+        private boolean compress = false;
+        private ExecutorService executor;
+
+        /**
+         * Sets the amount of worker threads. Defaults to the amount of CPU cores minus one.
+         */
+        @NotNull
+        public Options threads(final int threads) {
+            if (threads < 1) throw new IllegalArgumentException("threads must be at least 1");
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Sets how many copied inventories may wait for a worker at the same time. When the queue is full, copying pauses
+         * until the next tick. Defaults to 256.
+         */
+        @NotNull
+        public Options maxQueued(final int maxQueued) {
+            if (maxQueued < 1) throw new IllegalArgumentException("maxQueued must be at least 1");
+            this.maxQueued = maxQueued;
+            return this;
+        }
+
+        /**
+         * Sets how many inventories are copied per tick at most. Defaults to no limit.
+         */
+        @NotNull
+        public Options snapshotsPerTick(final int snapshotsPerTick) {
+            if (snapshotsPerTick < 1) throw new IllegalArgumentException("snapshotsPerTick must be at least 1");
+            this.snapshotsPerTick = snapshotsPerTick;
+            return this;
+        }
+
+        /**
+         * Sets how much main thread time may be spent copying inventories per tick. At least one inventory is copied per tick. Defaults to no limit.
+         */
+        @NotNull
+        public Options snapshotTimePerTick(final long time, @NotNull final TimeUnit unit) {
+            this.snapshotNanosPerTick = unit.toNanos(time);
+            return this;
+        }
+
+        /**
+         * Sets whether the serialized inventories are compressed. Defaults to false.
+         */
+        @NotNull
+        public Options compress(final boolean compress) {
+            this.compress = compress;
+            return this;
+        }
+
+        /**
+         * Uses the given executor instead of creating a new thread pool. The executor is not shut down by {@link InventorySerializationPipeline#shutdown()}.
+         */
+        @NotNull
+        public Options executor(@Nullable final ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+        private final int pool = POOL_COUNT.incrementAndGet();
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NotNull final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "JeffLib Inventory Serializer #" + pool + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
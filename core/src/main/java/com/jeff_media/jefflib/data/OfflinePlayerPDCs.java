@@ -0,0 +1,364 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.data;
+
+import com.jeff_media.jefflib.JeffLib;
+import com.jeff_media.jefflib.ProfileUtils;
+import com.jeff_media.jefflib.exceptions.UtilityClassInstantiationException;
+import com.jeff_media.jefflib.internal.annotations.NMS;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Scans or updates the {@link OfflinePlayerPersistentDataContainer}s of all players that ever joined the server.
+ * <p>
+ * Player files are listed lazily and only a limited amount of files is loaded at the same time, so even servers with
+ * hundreds of thousands of player files can be scanned without loading everything into memory. Files are read and
+ * decompressed in parallel on a dedicated thread pool, which is shut down once the scan is done.
+ * <p>
+ * Example:
+ * <pre>{@code
+ * OfflinePlayerPDCs.scan(pdc -> pdc.has(key, PersistentDataType.STRING),
+ *         new OfflinePlayerPDCs.Options().threads(4).progressListener(progress -> getLogger().info(progress.toString())))
+ *     .thenAccept(uuids -> getLogger().info("Found " + uuids.size() + " players"));
+ * }</pre>
+ *
+ * @nms
+ */
+@NMS
+public final class OfflinePlayerPDCs {
+
+    private OfflinePlayerPDCs() {
+        throw new UtilityClassInstantiationException();
+    }
+
+    /**
+     * Finds all players whose PDC matches the given predicate, using default {@link Options}
+     *
+     * @param filter Predicate that is called once per player. Called from the worker threads.
+     * @return CompletableFuture that completes with the UUIDs of all matching players
+     */
+    @NotNull
+    public static CompletableFuture<List<UUID>> scan(@NotNull final Predicate<PersistentDataContainer> filter) {
+        return scan(filter, new Options());
+    }
+
+    /**
+     * Finds all players whose PDC matches the given predicate
+     *
+     * @param filter  Predicate that is called once per player. Called from the worker threads.
+     * @param options Options
+     * @return CompletableFuture that completes with the UUIDs of all matching players
+     */
+    @NotNull
+    public static CompletableFuture<List<UUID>> scan(@NotNull final Predicate<PersistentDataContainer> filter, @NotNull final Options options) {
+        final List<UUID> matches = Collections.synchronizedList(new ArrayList<>());
+        return scan(filter, matches::add, options).thenApply(__ -> matches);
+    }
+
+    /**
+     * Streams all players whose PDC matches the given predicate to the given consumer, without collecting them
+     *
+     * @param filter  Predicate that is called once per player. Called from the worker threads.
+     * @param onMatch Consumer that is called with the UUID of every matching player. Called from the worker threads.
+     * @param options Options
+     * @return CompletableFuture that completes with the final progress once all files have been scanned
+     */
+    @NotNull
+    public static CompletableFuture<Progress> scan(@NotNull final Predicate<PersistentDataContainer> filter, @NotNull final Consumer<UUID> onMatch, @NotNull final Options options) {
+        return run(options, pdc -> {
+            if (!filter.test(pdc)) return false;
+            onMatch.accept(getUUID(pdc.getFile()));
+            return true;
+        }, false);
+    }
+
+    /**
+     * Changes the PDC of every player. All PDCs for which the updater returns true are saved afterwards.
+     *
+     * @param updater Updater that is called once per player. Called from the worker threads.
+     * @param options Options
+     * @return CompletableFuture that completes with the final progress once all files have been processed
+     */
+    @NotNull
+    public static CompletableFuture<Progress> bulkUpdate(@NotNull final Updater updater, @NotNull final Options options) {
+        return run(options, updater, true);
+    }
+
+    private static CompletableFuture<Progress> run(final Options options, final Updater task, final boolean save) {
+        final File folder = ProfileUtils.getPlayerDataFolder();
+        final CompletableFuture<Progress> future = new CompletableFuture<>();
+        final Thread coordinator = new Thread(() -> {
+            try {
+                future.complete(runBlocking(folder.toPath(), options, task, save));
+            } catch (final Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }, "JeffLib OfflinePlayerPDC Scan");
+        coordinator.setDaemon(true);
+        coordinator.start();
+        return future;
+    }
+
+    private static Progress runBlocking(final Path folder, final Options options, final Updater task, final boolean save) throws IOException, InterruptedException {
+        final ExecutorService executor = options.executor != null ? options.executor : Executors.newFixedThreadPool(options.threads, new WorkerThreadFactory());
+        final Semaphore inFlight = new Semaphore(options.getMaxInFlight());
+        final Progress progress = new Progress();
+        long nextReport = System.nanoTime() + options.progressIntervalNanos;
+        try (final DirectoryStream<Path> files = Files.newDirectoryStream(folder, "*.dat")) {
+            for (final Path path : files) {
+                if (getUUID(path.toFile()) == null) continue;
+                inFlight.acquire();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            final OfflinePlayerPersistentDataContainer pdc = OfflinePlayerPersistentDataContainer.load(path.toFile());
+                            if (task.update(pdc)) {
+                                progress.matched.incrementAndGet();
+                                if (save) pdc.save();
+                            }
+                        } catch (final Exception exception) {
+                            progress.failed.incrementAndGet();
+                            JeffLib.getLogger().log(Level.WARNING, "[JeffLib] Could not process player data file " + path.getFileName(), exception);
+                        } finally {
+                            progress.processed.incrementAndGet();
+                            inFlight.release();
+                        }
+                    });
+                } catch (final RuntimeException exception) {
+                    inFlight.release();
+                    throw exception;
+                }
+                if (options.progressListener != null && System.nanoTime() >= nextReport) {
+                    options.progressListener.accept(progress.snapshot(false));
+                    nextReport = System.nanoTime() + options.progressIntervalNanos;
+                }
+            }
+            // Wait for all remaining tasks
+            while (!inFlight.tryAcquire(options.getMaxInFlight(), options.progressIntervalNanos, TimeUnit.NANOSECONDS)) {
+                if (options.progressListener != null) {
+                    options.progressListener.accept(progress.snapshot(false));
+                }
+            }
+            inFlight.release(options.getMaxInFlight());
+        } finally {
+            if (options.executor == null) {
+                executor.shutdown();
+            }
+        }
+        final Progress result = progress.snapshot(true);
+        if (options.progressListener != null) {
+            options.progressListener.accept(result);
+        }
+        return result;
+    }
+
+    @Nullable
+    private static UUID getUUID(final File file) {
+        final String name = file.getName();
+        try {
+            return UUID.fromString(name.substring(0, name.length() - ".dat".length()));
+        } catch (final IllegalArgumentException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Changes an {@link OfflinePlayerPersistentDataContainer}
+     */
+    @FunctionalInterface
+    public interface Updater {
+        /**
+         * Changes the given PDC
+         *
+         * @return true if the PDC has been changed and should be saved, otherwise false
+         */
+        boolean update(@NotNull OfflinePlayerPersistentDataContainer pdc);
+    }
+
+    /**
+     * Options for scans and bulk updates
+     */
+    public static final class Options {
+
+        private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        private int maxInFlight = -1;
+        private ExecutorService executor;
+        private Consumer<Progress> progressListener;
+        private long progressIntervalNanos = TimeUnit.SECONDS.toNanos(5);
+
+        /**
+         * Sets the amount of worker threads. Defaults to the amount of CPU cores minus one.
+         */
+        @NotNull
+        public Options threads(final int threads) {
+            if (threads < 1) throw new IllegalArgumentException("threads must be at least 1");
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of files that are loaded at the same time. Defaults to twice the amount of threads.
+         */
+        @NotNull
+        public Options maxInFlight(final int maxInFlight) {
+            if (maxInFlight < 1) throw new IllegalArgumentException("maxInFlight must be at least 1");
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * Uses the given executor instead of creating a new thread pool. The executor is not shut down afterwards.
+         */
+        @NotNull
+        public Options executor(@Nullable final ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Sets a listener that regularly receives the current progress, and the final progress once done. Called from
+         * the scanning thread.
+         */
+        @NotNull
+        public Options progressListener(@Nullable final Consumer<Progress> progressListener) {
+            this.progressListener = progressListener;
+            return this;
+        }
+
+        /**
+         * Sets how often the progress listener is called. Defaults to every 5 seconds.
+         */
+        @NotNull
+        public Options progressInterval(final long interval, @NotNull final TimeUnit unit) {
+            this.progressIntervalNanos = unit.toNanos(interval);
+            return this;
+        }
+
+        private int getMaxInFlight() {
+            return maxInFlight > 0 ? maxInFlight : threads * 2;
+        }
+    }
+
+    /**
+     * Progress of a scan or bulk update
+     */
+    public static final class Progress {
+
+        private final long startNanos;
+        private final long elapsedNanos;
+        private final boolean done;
+        private final AtomicInteger processed;
+        private final AtomicInteger matched;
+        private final AtomicInteger failed;
+
+        private Progress() {
+            this(System.nanoTime(), 0, false, new AtomicInteger(), new AtomicInteger(), new AtomicInteger());
+        }
+
+        private Progress(final long startNanos, final long elapsedNanos, final boolean done, final AtomicInteger processed, final AtomicInteger matched, final AtomicInteger failed) {
+            this.startNanos = startNanos;
+            this.elapsedNanos = elapsedNanos;
+            this.done = done;
+            this.processed = processed;
+            this.matched = matched;
+            this.failed = failed;
+        }
+
+        private Progress snapshot(final boolean done) {
+            return new Progress(startNanos, System.nanoTime() - startNanos, done,
+                    new AtomicInteger(processed.get()), new AtomicInteger(matched.get()), new AtomicInteger(failed.get()));
+        }
+
+        /**
+         * Gets the amount of processed files, including failed ones
+         */
+        public int getProcessed() {
+            return processed.get();
+        }
+
+        /**
+         * Gets the amount of matching players when scanning, or the amount of changed players when updating
+         */
+        public int getMatched() {
+            return matched.get();
+        }
+
+        /**
+         * Gets the amount of files that could not be read or saved
+         */
+        public int getFailed() {
+            return failed.get();
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        /**
+         * Gets the average amount of processed files per second
+         */
+        public double getFilesPerSecond() {
+            return elapsedNanos == 0 ? 0 : processed.get() * 1_000_000_000D / elapsedNanos;
+        }
+
+        /**
+         * Whether all files have been processed
+         */
+        public boolean isDone() {
+            return done;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d files processed, %d matched, %d failed in %.1fs (%.0f files/s)",
+                    done ? "Done" : "In progress", getProcessed(), getMatched(), getFailed(), getElapsedMillis() / 1000D, getFilesPerSecond());
+        }
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NotNull final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "JeffLib OfflinePlayerPDC Worker #" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -19,23 +19,43 @@ package com.jeff_media.jefflib.data;
 
 import com.allatori.annotations.DoNotRename;
 import com.jeff_media.jefflib.JeffLib;
+import com.jeff_media.jefflib.PDCUtils;
 import com.jeff_media.jefflib.ProfileUtils;
 import com.jeff_media.jefflib.ReflUtils;
 import com.jeff_media.jefflib.exceptions.NMSNotSupportedException;
+import com.jeff_media.jefflib.exceptions.PlayerDataModifiedException;
 import com.jeff_media.jefflib.internal.annotations.Internal;
 import com.jeff_media.jefflib.internal.annotations.NMS;
 import com.jeff_media.jefflib.internal.annotations.Paper;
+import com.jeff_media.jefflib.internal.nbt.NbtStreams;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import org.bukkit.NamespacedKey;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.persistence.PersistentDataAdapterContext;
 import org.bukkit.persistence.PersistentDataContainer;
 import org.bukkit.persistence.PersistentDataType;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Represents a {@link PersistentDataContainer} from an {@link org.bukkit.OfflinePlayer}. <b>Important:</b> When changing values, you have to call {@link #save()} or {@link #saveAsync()} afterwards.
@@ -46,19 +66,26 @@ import org.jetbrains.annotations.NotNull;
 @DoNotRename
 public class OfflinePlayerPersistentDataContainer implements PersistentDataContainer {
 
+    private static final String BUKKIT_VALUES = "BukkitValues";
+    private static volatile Boolean partialReadSupported;
+
     private final PersistentDataContainer craftPersistentDataContainer;
     private final File file;
     private final Object compoundTag;
+    private final Set<NamespacedKey> changedKeys = ConcurrentHashMap.newKeySet();
+    private volatile OfflinePlayerSaveQueue.FileStamp loadedStamp;
 
     /**
+     * @param compoundTag The whole .dat file as CompoundTag, or null when only the BukkitValues have been read
      * @internal
      * @internal For internal use only
      */
     @Internal
-    public OfflinePlayerPersistentDataContainer(@NotNull PersistentDataContainer craftPersistentDataContainer, @NotNull File file, @NotNull Object compoundTag) {
+    public OfflinePlayerPersistentDataContainer(@NotNull PersistentDataContainer craftPersistentDataContainer, @NotNull File file, @Nullable Object compoundTag) {
         this.craftPersistentDataContainer = craftPersistentDataContainer;
         this.file = file;
         this.compoundTag = compoundTag;
+        this.loadedStamp = OfflinePlayerSaveQueue.FileStamp.of(file);
     }
 
     /**
@@ -72,13 +99,54 @@ public class OfflinePlayerPersistentDataContainer implements PersistentDataConta
     public static CompletableFuture<OfflinePlayerPersistentDataContainer> of(UUID uuid) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                return JeffLib.getNMSHandler().getPDCFromDatFile(ProfileUtils.getPlayerDataFile(uuid));
+                return load(ProfileUtils.getPlayerDataFile(uuid));
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
         });
     }
 
+    /**
+     * Loads the PDC from the given .dat file. When supported, only the BukkitValues compound is decoded, and all other
+     * tags are skipped without building them.
+     */
+    static OfflinePlayerPersistentDataContainer load(@NotNull final File file) throws IOException {
+        if (isPartialReadSupported()) {
+            return loadPartially(file);
+        }
+        return JeffLib.getNMSHandler().getPDCFromDatFile(file);
+    }
+
+    /**
+     * Checks once whether the NMS handler supports binary PDC serialization, which is needed to read and write only the BukkitValues
+     */
+    private static boolean isPartialReadSupported() {
+        Boolean supported = partialReadSupported;
+        if (supported == null) {
+            try {
+                final byte[] emptyCompound = NbtStreams.toRootCompound(new byte[] {NbtStreams.TAG_END});
+                JeffLib.getNMSHandler().readPdc(new DataInputStream(new ByteArrayInputStream(emptyCompound)), PDCUtils.createPersistentDataContainer());
+                supported = true;
+            } catch (NMSNotSupportedException | IOException e) {
+                supported = false;
+            }
+            partialReadSupported = supported;
+        }
+        return supported;
+    }
+
+    private static OfflinePlayerPersistentDataContainer loadPartially(final File file) throws IOException {
+        final byte[] payload;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+            payload = NbtStreams.readChildCompound(in, BUKKIT_VALUES);
+        }
+        final PersistentDataContainer pdc = PDCUtils.createPersistentDataContainer();
+        if (payload != null) {
+            JeffLib.getNMSHandler().readPdc(new DataInputStream(new ByteArrayInputStream(NbtStreams.toRootCompound(payload))), pdc);
+        }
+        return new OfflinePlayerPersistentDataContainer(pdc, file, null);
+    }
+
     /**
      * Returns an OfflinePlayer's {@link PersistentDataContainer}.&nbsp;<b>Important: </b>When doing changes to the PDC, you must call {@link OfflinePlayerPersistentDataContainer#save()} or {@link OfflinePlayerPersistentDataContainer#saveAsync()} to save the changes.
      * The player's .dat file must already exist, i.e. it doesn't work for players who have never joined before.
@@ -123,28 +191,112 @@ public class OfflinePlayerPersistentDataContainer implements PersistentDataConta
     }
 
     /**
-     * Saves the data to the player's file. This will overwrite any changes made to the original file that happened after
-     * creating this instance.
+     * Saves the data to the player's file. The file is written to a temporary file first, which then replaces the original file.
+     * <p>
+     * If the server has written the file after this instance was loaded, e.g. because the player joined in the meantime,
+     * the file is not changed and a RuntimeException caused by a {@link PlayerDataModifiedException} is thrown instead.
      */
     public void save() {
         try {
-            JeffLib.getNMSHandler().updatePdcInDatFile(this);
+            OfflinePlayerSaveQueue.saveNow(this);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
     /**
-     * Saves the data to the player's file. This will overwrite any changes made to the original file that happened after
-     * creating this instance.
+     * Saves the data to the player's file on a background thread. Saves for the same player that are requested before the
+     * previous one has been written are merged into a single write, only applying the keys that have been changed.
+     * <p>
+     * If the server has written the file after this instance was loaded, the returned future completes exceptionally
+     * with a {@link PlayerDataModifiedException}.
+     *
+     * @see #setMaxWritesPerSecond(int)
      */
     public CompletableFuture<Void> saveAsync() {
-        return CompletableFuture.runAsync(this::save);
+        return OfflinePlayerSaveQueue.enqueue(this);
+    }
+
+    /**
+     * Limits how many player files are written per second by {@link #saveAsync()}. Defaults to no limit.
+     *
+     * @param maxWritesPerSecond Maximum writes per second, or 0 for no limit
+     */
+    public static void setMaxWritesPerSecond(final int maxWritesPerSecond) {
+        OfflinePlayerSaveQueue.setMaxWritesPerSecond(maxWritesPerSecond);
     }
 
+    /**
+     * Gets the amount of player files that are waiting to be written by {@link #saveAsync()}
+     */
+    public static int getPendingSaves() {
+        return OfflinePlayerSaveQueue.getPendingSaves();
+    }
+
+    OfflinePlayerSaveQueue.FileStamp getLoadedStamp() {
+        return loadedStamp;
+    }
+
+    void setLoadedStamp(final OfflinePlayerSaveQueue.FileStamp loadedStamp) {
+        this.loadedStamp = loadedStamp;
+    }
+
+    /**
+     * Gets and clears the keys that have been changed since the last save
+     */
+    Set<NamespacedKey> drainChangedKeys() {
+        final Set<NamespacedKey> drained = new HashSet<>(changedKeys);
+        changedKeys.removeAll(drained);
+        return drained;
+    }
+
+    void restoreChangedKeys(final Set<NamespacedKey> keys) {
+        changedKeys.addAll(keys);
+    }
+
+    /**
+     * Writes the whole data to a temporary file and then replaces the player's file with it
+     */
+    void writeAtomically() throws IOException {
+        if (compoundTag == null) {
+            saveSpliced();
+            return;
+        }
+        final File tempFile = new File(file.getParentFile(), file.getName() + ".jefflib-tmp");
+        try {
+            JeffLib.getNMSHandler().updatePdcInDatFile(new OfflinePlayerPersistentDataContainer(craftPersistentDataContainer, tempFile, compoundTag));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile.toPath());
+            throw e;
+        }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Copies the .dat file into a temporary file, only replacing the BukkitValues, and then replaces the original file
+     */
+    private void saveSpliced() throws IOException {
+        byte[] payload = null;
+        if (!craftPersistentDataContainer.isEmpty()) {
+            final byte[] nbt = PDCUtils.serializeToBytes(craftPersistentDataContainer);
+            payload = Arrays.copyOfRange(nbt, NbtStreams.getRootPayloadOffset(nbt), nbt.length);
+        }
+        final File tempFile = new File(file.getParentFile(), file.getName() + ".jefflib-tmp");
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tempFile))))) {
+            NbtStreams.replaceChildCompound(in, out, BUKKIT_VALUES, payload);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile.toPath());
+            throw e;
+        }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+
     @Override
     public <T, Z> void set(@NotNull NamespacedKey namespacedKey, @NotNull PersistentDataType<T, Z> persistentDataType, @NotNull Z z) {
         craftPersistentDataContainer.set(namespacedKey, persistentDataType, z);
+        changedKeys.add(namespacedKey);
     }
 
     @Override
@@ -162,11 +314,11 @@ public class OfflinePlayerPersistentDataContainer implements PersistentDataConta
     //@Override
     @Paper
     public @NotNull byte[] serializeToBytes() throws IOException {
-        try {
-            return (byte[]) ReflUtils.getMethod(craftPersistentDataContainer.getClass(), "serializeToBytes").invoke(craftPersistentDataContainer);
-        } catch (ReflectiveOperationException ex) {
-            throw new RuntimeException(ex);
+        final Function<Object, byte[]> serializeToBytes = ReflUtils.getMethodFunction(craftPersistentDataContainer.getClass(), "serializeToBytes");
+        if (serializeToBytes == null) {
+            throw new NMSNotSupportedException("CraftPersistentDataContainer#serializeToBytes is only available on Paper");
         }
+        return serializeToBytes.apply(craftPersistentDataContainer);
         //return craftPersistentDataContainer.serializeToBytes();
     }
 
@@ -176,12 +328,20 @@ public class OfflinePlayerPersistentDataContainer implements PersistentDataConta
     //@Override
     @Paper
     public void readFromBytes(@NotNull byte[] bytes, boolean b) throws IOException {
+        changedKeys.addAll(craftPersistentDataContainer.getKeys());
+        final MethodHandle readFromBytes = ReflUtils.getMethodHandle(craftPersistentDataContainer.getClass(), "readFromBytes", byte[].class, boolean.class);
+        if (readFromBytes == null) {
+            throw new NMSNotSupportedException("CraftPersistentDataContainer#readFromBytes is only available on Paper");
+        }
         try {
-            ReflUtils.getMethod(craftPersistentDataContainer.getClass(), "readFromBytes", byte[].class, boolean.class).invoke(craftPersistentDataContainer, bytes, b);
-        } catch (ReflectiveOperationException ex) {
+            readFromBytes.invoke(craftPersistentDataContainer, bytes, b);
+        } catch (IOException | RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
             throw new RuntimeException(ex);
         }
         //craftPersistentDataContainer.readFromBytes(bytes, b);
+        changedKeys.addAll(craftPersistentDataContainer.getKeys());
     }
 
     @Override
@@ -204,6 +364,7 @@ public class OfflinePlayerPersistentDataContainer implements PersistentDataConta
     @Override
     public void remove(@NotNull NamespacedKey namespacedKey) {
         craftPersistentDataContainer.remove(namespacedKey);
+        changedKeys.add(namespacedKey);
     }
 
     @Override
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.data;
+
+import com.jeff_media.jefflib.JeffLib;
+import com.jeff_media.jefflib.PDCUtils;
+import com.jeff_media.jefflib.exceptions.PlayerDataModifiedException;
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataType;
+
+/**
+ * Writes {@link OfflinePlayerPersistentDataContainer}s on a single background thread.
+ * <p>
+ * Saves for the same file that are requested before the previous one has been written are merged into a single
+ * write. All writes to the same file, including synchronous ones, are serialized using a striped lock. When more than
+ * one container has to be written, or the file has been written by this queue since the container was loaded, the file
+ * is read again and only the keys that have been changed in the containers are applied to it.
+ */
+@Internal
+final class OfflinePlayerSaveQueue {
+
+    private static final int LOCK_STRIPES = 64;
+    private static final Object[] LOCKS = new Object[LOCK_STRIPES];
+    private static final Map<File, Pending> PENDING = new ConcurrentHashMap<>();
+    private static final BlockingQueue<File> QUEUE = new LinkedBlockingQueue<>();
+    private static final Map<File, FileStamp> WRITTEN = new ConcurrentHashMap<>();
+    private static volatile long minNanosBetweenWrites = 0;
+    private static Thread worker;
+
+    static {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            LOCKS[i] = new Object();
+        }
+    }
+
+    private OfflinePlayerSaveQueue() {
+    }
+
+    static void setMaxWritesPerSecond(final int maxWritesPerSecond) {
+        minNanosBetweenWrites = maxWritesPerSecond <= 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / maxWritesPerSecond;
+    }
+
+    static int getPendingSaves() {
+        return PENDING.size();
+    }
+
+    /**
+     * Queues the container. If a save for the same file is already queued, it will be written together with it.
+     */
+    static CompletableFuture<Void> enqueue(final OfflinePlayerPersistentDataContainer container) {
+        final File file = container.getFile().getAbsoluteFile();
+        final Pending pending = PENDING.compute(file, (__, existing) -> {
+            final Pending result = existing == null ? new Pending() : existing;
+            synchronized (result.containers) {
+                if (!result.containers.contains(container)) {
+                    result.containers.add(container);
+                }
+            }
+            if (existing == null) {
+                QUEUE.add(file);
+            }
+            return result;
+        });
+        ensureWorker();
+        return pending.future;
+    }
+
+    /**
+     * Writes the container immediately on the current thread
+     */
+    static void saveNow(final OfflinePlayerPersistentDataContainer container) throws IOException {
+        final List<OfflinePlayerPersistentDataContainer> containers = new ArrayList<>(1);
+        containers.add(container);
+        write(container.getFile().getAbsoluteFile(), containers);
+    }
+
+    private static synchronized void ensureWorker() {
+        if (worker != null && worker.isAlive()) return;
+        worker = new Thread(OfflinePlayerSaveQueue::run, "JeffLib OfflinePlayer Save Queue");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private static void run() {
+        long lastWrite = 0;
+        while (true) {
+            final File file;
+            try {
+                file = QUEUE.poll(1, TimeUnit.MINUTES);
+                if (file == null) {
+                    synchronized (OfflinePlayerSaveQueue.class) {
+                        if (QUEUE.isEmpty()) {
+                            worker = null;
+                            return;
+                        }
+                    }
+                    continue;
+                }
+                final long wait = lastWrite + minNanosBetweenWrites - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            final Pending pending = PENDING.remove(file);
+            if (pending == null) continue;
+            final List<OfflinePlayerPersistentDataContainer> containers;
+            synchronized (pending.containers) {
+                containers = new ArrayList<>(pending.containers);
+            }
+            try {
+                write(file, containers);
+                pending.future.complete(null);
+            } catch (final Throwable t) {
+                if (!(t instanceof PlayerDataModifiedException)) {
+                    JeffLib.getLogger().log(Level.WARNING, "[JeffLib] Could not save player data file " + file.getName(), t);
+                }
+                pending.future.completeExceptionally(t);
+            }
+            lastWrite = System.nanoTime();
+        }
+    }
+
+    private static void write(final File file, final List<OfflinePlayerPersistentDataContainer> containers) throws IOException {
+        synchronized (LOCKS[(file.hashCode() & 0x7FFFFFFF) % LOCK_STRIPES]) {
+            final FileStamp current = FileStamp.of(file);
+            final FileStamp writtenByUs = WRITTEN.get(file);
+            for (final OfflinePlayerPersistentDataContainer container : containers) {
+                if (!current.equals(container.getLoadedStamp()) && !current.equals(writtenByUs)) {
+                    throw new PlayerDataModifiedException(file);
+                }
+            }
+            final List<Set<NamespacedKey>> changedKeys = new ArrayList<>(containers.size());
+            for (final OfflinePlayerPersistentDataContainer container : containers) {
+                changedKeys.add(container.drainChangedKeys());
+            }
+            try {
+                final OfflinePlayerPersistentDataContainer first = containers.get(0);
+                if (containers.size() == 1 && current.equals(first.getLoadedStamp())) {
+                    first.writeAtomically();
+                } else {
+                    final OfflinePlayerPersistentDataContainer merged = OfflinePlayerPersistentDataContainer.load(file);
+                    for (int i = 0; i < containers.size(); i++) {
+                        applyChanges(containers.get(i), changedKeys.get(i), merged);
+                    }
+                    merged.writeAtomically();
+                }
+            } catch (final IOException | RuntimeException e) {
+                for (int i = 0; i < containers.size(); i++) {
+                    containers.get(i).restoreChangedKeys(changedKeys.get(i));
+                }
+                throw e;
+            }
+            final FileStamp written = FileStamp.of(file);
+            WRITTEN.put(file, written);
+            for (final OfflinePlayerPersistentDataContainer container : containers) {
+                container.setLoadedStamp(written);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void applyChanges(final OfflinePlayerPersistentDataContainer source, final Set<NamespacedKey> changedKeys, final OfflinePlayerPersistentDataContainer target) {
+        for (final NamespacedKey key : changedKeys) {
+            final PersistentDataType<Object, Object> type = (PersistentDataType<Object, Object>) PDCUtils.getDataType(source, key);
+            final Object value = type == null ? null : source.get(key, type);
+            if (value == null) {
+                target.remove(key);
+            } else {
+                target.set(key, type, value);
+            }
+        }
+    }
+
+    private static final class Pending {
+        private final List<OfflinePlayerPersistentDataContainer> containers = new ArrayList<>();
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+    }
+
+    /**
+     * Last modification time and size of a file, used to detect whether someone else wrote it
+     */
+    static final class FileStamp {
+        private final long lastModified;
+        private final long length;
+
+        private FileStamp(final long lastModified, final long length) {
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        static FileStamp of(final File file) {
+            return new FileStamp(file.lastModified(), file.length());
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (!(o instanceof FileStamp)) return false;
+            final FileStamp other = (FileStamp) o;
+            return lastModified == other.lastModified && length == other.length;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(lastModified) + Long.hashCode(length);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.data;
+
+import com.jeff_media.jefflib.PDCUtils;
+import java.util.Objects;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataHolder;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A typed handle for a PersistentDataContainer entry, combining a {@link NamespacedKey} with its {@link PersistentDataType}.
+ * Create it once, e.g. as a static final field, and reuse it - no key lookup happens on get/set/has. PdcKeys are immutable
+ * and can be shared between threads.
+ * <p>
+ * Example:
+ * <pre>{@code
+ * private static final PdcKey<Integer, Integer> LEVEL = PdcKey.of("level", PersistentDataType.INTEGER);
+ *
+ * int level = LEVEL.getOrDefault(itemStack, 0);
+ * LEVEL.set(player, level + 1);
+ * }</pre>
+ *
+ * @param <T> Primitive data type
+ * @param <Z> Complex data type
+ */
+public final class PdcKey<T, Z> {
+
+    private final NamespacedKey key;
+    private final PersistentDataType<T, Z> type;
+
+    private PdcKey(@NotNull final NamespacedKey key, @NotNull final PersistentDataType<T, Z> type) {
+        this.key = Objects.requireNonNull(key, "key cannot be null");
+        this.type = Objects.requireNonNull(type, "type cannot be null");
+    }
+
+    /**
+     * Creates a PdcKey
+     *
+     * @param key  NamespacedKey
+     * @param type Data type
+     */
+    @NotNull
+    @Contract(value = "_, _ -> new", pure = true)
+    public static <T, Z> PdcKey<T, Z> of(@NotNull final NamespacedKey key, @NotNull final PersistentDataType<T, Z> type) {
+        return new PdcKey<>(key, type);
+    }
+
+    /**
+     * Creates a PdcKey using your plugin's namespace. <b>JeffLib has to be initialized first.</b>
+     *
+     * @param key  Key name
+     * @param type Data type
+     */
+    @NotNull
+    @Contract(value = "_, _ -> new", pure = true)
+    public static <T, Z> PdcKey<T, Z> of(@NotNull final String key, @NotNull final PersistentDataType<T, Z> type) {
+        return new PdcKey<>(PDCUtils.getKey(key), type);
+    }
+
+    @NotNull
+    public NamespacedKey getKey() {
+        return key;
+    }
+
+    @NotNull
+    public PersistentDataType<T, Z> getType() {
+        return type;
+    }
+
+    /**
+     * Gets the value from the given PDC
+     */
+    @Nullable
+    public Z get(@NotNull final PersistentDataContainer pdc) {
+        return pdc.get(key, type);
+    }
+
+    /**
+     * Gets the value from the holder's PDC
+     */
+    @Nullable
+    public Z get(@NotNull final PersistentDataHolder holder) {
+        return holder.getPersistentDataContainer().get(key, type);
+    }
+
+    /**
+     * Gets the value from the ItemStack's PDC
+     *
+     * @return The value, or null if it isn't set or the ItemStack has no ItemMeta
+     */
+    @Nullable
+    public Z get(@NotNull final ItemStack item) {
+        final ItemMeta meta = item.getItemMeta();
+        if (meta == null) return null;
+        return meta.getPersistentDataContainer().get(key, type);
+    }
+
+    /**
+     * Gets the value from the given PDC or the default value when the key is not set
+     */
+    @Nullable
+    @Contract("_, !null -> !null")
+    public Z getOrDefault(@NotNull final PersistentDataContainer pdc, @Nullable final Z defaultValue) {
+        final Z value = pdc.get(key, type);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Gets the value from the holder's PDC or the default value when the key is not set
+     */
+    @Nullable
+    @Contract("_, !null -> !null")
+    public Z getOrDefault(@NotNull final PersistentDataHolder holder, @Nullable final Z defaultValue) {
+        return getOrDefault(holder.getPersistentDataContainer(), defaultValue);
+    }
+
+    /**
+     * Gets the value from the ItemStack's PDC or the default value when the key is not set
+     */
+    @Nullable
+    @Contract("_, !null -> !null")
+    public Z getOrDefault(@NotNull final ItemStack item, @Nullable final Z defaultValue) {
+        final Z value = get(item);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Sets the value in the given PDC
+     */
+    public void set(@NotNull final PersistentDataContainer pdc, @NotNull final Z value) {
+        pdc.set(key, type, value);
+    }
+
+    /**
+     * Sets the value in the holder's PDC
+     */
+    public void set(@NotNull final PersistentDataHolder holder, @NotNull final Z value) {
+        holder.getPersistentDataContainer().set(key, type, value);
+    }
+
+    /**
+     * Sets the value in the ItemStack's PDC
+     */
+    public void set(@NotNull final ItemStack item, @NotNull final Z value) {
+        final ItemMeta meta = Objects.requireNonNull(item.getItemMeta());
+        meta.getPersistentDataContainer().set(key, type, value);
+        item.setItemMeta(meta);
+    }
+
+    /**
+     * Checks whether the given PDC contains this key with a matching data type
+     */
+    public boolean has(@NotNull final PersistentDataContainer pdc) {
+        return pdc.has(key, type);
+    }
+
+    /**
+     * Checks whether the holder's PDC contains this key with a matching data type
+     */
+    public boolean has(@NotNull final PersistentDataHolder holder) {
+        return holder.getPersistentDataContainer().has(key, type);
+    }
+
+    /**
+     * Checks whether the ItemStack's PDC contains this key with a matching data type
+     */
+    public boolean has(@NotNull final ItemStack item) {
+        final ItemMeta meta = item.getItemMeta();
+        return meta != null && meta.getPersistentDataContainer().has(key, type);
+    }
+
+    /**
+     * Removes this key from the given PDC
+     */
+    public void remove(@NotNull final PersistentDataContainer pdc) {
+        pdc.remove(key);
+    }
+
+    /**
+     * Removes this key from the holder's PDC
+     */
+    public void remove(@NotNull final PersistentDataHolder holder) {
+        holder.getPersistentDataContainer().remove(key);
+    }
+
+    /**
+     * Removes this key from the ItemStack's PDC
+     */
+    public void remove(@NotNull final ItemStack item) {
+        final ItemMeta meta = item.getItemMeta();
+        if (meta == null) return;
+        meta.getPersistentDataContainer().remove(key);
+        item.setItemMeta(meta);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final PdcKey<?, ?> other = (PdcKey<?, ?>) o;
+        return key.equals(other.key) && type.equals(other.type);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * key.hashCode() + type.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "PdcKey{key=" + key + ", type=" + type.getComplexType().getSimpleName() + "}";
+    }
+}
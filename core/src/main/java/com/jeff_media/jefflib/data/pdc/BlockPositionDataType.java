@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.data.pdc;
+
+import org.bukkit.persistence.PersistentDataAdapterContext;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.util.BlockVector;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Stores a block position as a single long, the same way Minecraft packs block positions: 26 bits for X, 26 bits for Z
+ * and 12 bits for Y. X and Z must be between -33554432 and 33554431, Y between -2048 and 2047.
+ *
+ * @see CompactDataTypes#BLOCK_POSITION
+ */
+public final class BlockPositionDataType implements PersistentDataType<Long, BlockVector> {
+
+    private static final int HORIZONTAL_BITS = 26;
+    private static final int VERTICAL_BITS = 12;
+
+    BlockPositionDataType() {
+    }
+
+    /**
+     * Packs the given coordinates into a single long
+     */
+    public static long pack(final int x, final int y, final int z) {
+        checkRange("x", x, HORIZONTAL_BITS);
+        checkRange("y", y, VERTICAL_BITS);
+        checkRange("z", z, HORIZONTAL_BITS);
+        return ((long) x & 0x3FFFFFF) << 38 | ((long) z & 0x3FFFFFF) << 12 | ((long) y & 0xFFF);
+    }
+
+    public static int unpackX(final long packed) {
+        return (int) (packed >> 38);
+    }
+
+    public static int unpackY(final long packed) {
+        return (int) (packed << 52 >> 52);
+    }
+
+    public static int unpackZ(final long packed) {
+        return (int) (packed << 26 >> 38);
+    }
+
+    private static void checkRange(final String name, final int value, final int bits) {
+        final int max = (1 << (bits - 1)) - 1;
+        if (value < -max - 1 || value > max) {
+            throw new IllegalArgumentException(name + " must be between " + (-max - 1) + " and " + max + ", but is " + value);
+        }
+    }
+
+    @NotNull
+    @Override
+    public Class<Long> getPrimitiveType() {
+        return Long.class;
+    }
+
+    @NotNull
+    @Override
+    public Class<BlockVector> getComplexType() {
+        return BlockVector.class;
+    }
+
+    @NotNull
+    @Override
+    public Long toPrimitive(@NotNull final BlockVector complex, @NotNull final PersistentDataAdapterContext context) {
+        return pack(complex.getBlockX(), complex.getBlockY(), complex.getBlockZ());
+    }
+
+    @NotNull
+    @Override
+    public BlockVector fromPrimitive(@NotNull final Long primitive, @NotNull final PersistentDataAdapterContext context) {
+        return new BlockVector(unpackX(primitive), unpackY(primitive), unpackZ(primitive));
+    }
+}
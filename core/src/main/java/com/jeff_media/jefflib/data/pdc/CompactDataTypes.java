@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.data.pdc;
+
+import com.jeff_media.jefflib.exceptions.UtilityClassInstantiationException;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Ready-made {@link org.bukkit.persistence.PersistentDataType}s that store common values in a compact binary form,
+ * instead of as Strings or Base64 encoded Java serialization.
+ * <p>
+ * Approximate sizes compared to the usual String encodings:
+ * <ul>
+ *     <li>{@link #UUID}: 16 bytes instead of 36 characters</li>
+ *     <li>{@link #BLOCK_POSITION}: 8 bytes instead of e.g. "-1234,64,5678"</li>
+ *     <li>{@link #enumSet(Class)}: one bit per enum constant instead of a comma separated list of names</li>
+ *     <li>{@link #INT_LIST} / {@link #LONG_LIST}: 1 byte for small numbers (-64 to 63), and never more than 5 / 10 bytes per number</li>
+ *     <li>{@link #ITEM_STACK_ARRAY}: binary NBT instead of Base64 encoded Java serialization, which adds about a third for Base64 alone</li>
+ * </ul>
+ */
+public final class CompactDataTypes {
+
+    /**
+     * Stores a UUID as 16 bytes
+     */
+    public static final UUIDDataType UUID = new UUIDDataType();
+
+    /**
+     * Stores a block position as a single long, using 26 bits for X and Z and 12 bits for Y
+     */
+    public static final BlockPositionDataType BLOCK_POSITION = new BlockPositionDataType();
+
+    /**
+     * Stores a list of ints using zigzag encoded varints
+     */
+    public static final VarIntListDataType INT_LIST = new VarIntListDataType();
+
+    /**
+     * Stores a list of longs using zigzag encoded varints
+     */
+    public static final VarLongListDataType LONG_LIST = new VarLongListDataType();
+
+    /**
+     * Stores an ItemStack array as binary NBT, including the data version to upgrade items from older Minecraft versions.
+     * Requires 1.20.5+.
+     *
+     * @nms
+     */
+    public static final ItemStackArrayDataType ITEM_STACK_ARRAY = new ItemStackArrayDataType();
+
+    private CompactDataTypes() {
+        throw new UtilityClassInstantiationException();
+    }
+
+    /**
+     * Creates a data type that stores an EnumSet as a bitmask of the constants' ordinals. Adding new constants at the end
+     * of the enum is fine, but reordering or removing constants changes the meaning of existing data.
+     *
+     * @param enumClass Enum class
+     */
+    @NotNull
+    public static <E extends Enum<E>> EnumSetDataType<E> enumSet(@NotNull final Class<E> enumClass) {
+        return new EnumSetDataType<>(enumClass);
+    }
+}
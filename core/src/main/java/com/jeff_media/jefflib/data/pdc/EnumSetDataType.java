@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.data.pdc;
+
+import java.util.BitSet;
+import java.util.EnumSet;
+import org.bukkit.persistence.PersistentDataAdapterContext;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Stores an EnumSet as a bitmask of the constants' ordinals, using one bit per constant
+ *
+ * @see CompactDataTypes#enumSet(Class)
+ */
+public final class EnumSetDataType<E extends Enum<E>> implements PersistentDataType<byte[], EnumSet<E>> {
+
+    private final Class<E> enumClass;
+    private final E[] constants;
+
+    EnumSetDataType(@NotNull final Class<E> enumClass) {
+        this.enumClass = enumClass;
+        this.constants = enumClass.getEnumConstants();
+    }
+
+    @NotNull
+    @Override
+    public Class<byte[]> getPrimitiveType() {
+        return byte[].class;
+    }
+
+    @NotNull
+    @Override
+    @SuppressWarnings("unchecked")
+    public Class<EnumSet<E>> getComplexType() {
+        return (Class<EnumSet<E>>) (Class<?>) EnumSet.class;
+    }
+
+    @NotNull
+    @Override
+    public byte[] toPrimitive(@NotNull final EnumSet<E> complex, @NotNull final PersistentDataAdapterContext context) {
+        final BitSet bits = new BitSet(constants.length);
+        for (final E constant : complex) {
+            bits.set(constant.ordinal());
+        }
+        return bits.toByteArray();
+    }
+
+    @NotNull
+    @Override
+    public EnumSet<E> fromPrimitive(@NotNull final byte[] primitive, @NotNull final PersistentDataAdapterContext context) {
+        final EnumSet<E> set = EnumSet.noneOf(enumClass);
+        final BitSet bits = BitSet.valueOf(primitive);
+        for (int i = bits.nextSetBit(0); i >= 0 && i < constants.length; i = bits.nextSetBit(i + 1)) {
+            set.add(constants[i]);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.data.pdc;
+
+import com.jeff_media.jefflib.JeffLib;
+import com.jeff_media.jefflib.internal.annotations.NMS;
+import com.jeff_media.jefflib.internal.nms.AbstractNMSHandler;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.persistence.PersistentDataAdapterContext;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Stores an ItemStack array as binary NBT. Null and air are stored as a single byte. The data version is stored
+ * once per array, so items saved on older Minecraft versions are upgraded when loading them. Requires 1.20.5+.
+ *
+ * @nms
+ * @see CompactDataTypes#ITEM_STACK_ARRAY
+ */
+@NMS
+public final class ItemStackArrayDataType implements PersistentDataType<byte[], ItemStack[]> {
+
+    ItemStackArrayDataType() {
+    }
+
+    @NotNull
+    @Override
+    public Class<byte[]> getPrimitiveType() {
+        return byte[].class;
+    }
+
+    @NotNull
+    @Override
+    public Class<ItemStack[]> getComplexType() {
+        return ItemStack[].class;
+    }
+
+    @NotNull
+    @Override
+    @SuppressWarnings("deprecation")
+    public byte[] toPrimitive(@NotNull final ItemStack[] complex, @NotNull final PersistentDataAdapterContext context) {
+        final AbstractNMSHandler nms = JeffLib.getNMSHandler();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(complex.length);
+            out.writeInt(Bukkit.getUnsafe().getDataVersion());
+            for (final ItemStack item : complex) {
+                if (item == null || item.getType() == Material.AIR) {
+                    out.writeBoolean(false);
+                } else {
+                    out.writeBoolean(true);
+                    nms.writeItemStack(item, out);
+                }
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @NotNull
+    @Override
+    public ItemStack[] fromPrimitive(@NotNull final byte[] primitive, @NotNull final PersistentDataAdapterContext context) {
+        final AbstractNMSHandler nms = JeffLib.getNMSHandler();
+        try (final DataInputStream in = new DataInputStream(new ByteArrayInputStream(primitive))) {
+            final int length = in.readInt();
+            if (length < 0 || length > primitive.length) {
+                throw new IllegalArgumentException("Invalid array length " + length);
+            }
+            final int dataVersion = in.readInt();
+            final ItemStack[] items = new ItemStack[length];
+            for (int i = 0; i < length; i++) {
+                if (in.readBoolean()) {
+                    items[i] = nms.readItemStack(in, dataVersion);
+                }
+            }
+            return items;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.data.pdc;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import org.bukkit.persistence.PersistentDataAdapterContext;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Stores a UUID as 16 bytes
+ *
+ * @see CompactDataTypes#UUID
+ */
+public final class UUIDDataType implements PersistentDataType<byte[], UUID> {
+
+    UUIDDataType() {
+    }
+
+    @NotNull
+    @Override
+    public Class<byte[]> getPrimitiveType() {
+        return byte[].class;
+    }
+
+    @NotNull
+    @Override
+    public Class<UUID> getComplexType() {
+        return UUID.class;
+    }
+
+    @NotNull
+    @Override
+    public byte[] toPrimitive(@NotNull final UUID complex, @NotNull final PersistentDataAdapterContext context) {
+        return ByteBuffer.allocate(16).putLong(complex.getMostSignificantBits()).putLong(complex.getLeastSignificantBits()).array();
+    }
+
+    @NotNull
+    @Override
+    public UUID fromPrimitive(@NotNull final byte[] primitive, @NotNull final PersistentDataAdapterContext context) {
+        if (primitive.length != 16) {
+            throw new IllegalArgumentException("A UUID must be 16 bytes long, but is " + primitive.length);
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(primitive);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
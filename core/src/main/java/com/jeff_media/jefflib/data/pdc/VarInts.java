@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.data.pdc;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Zigzag encoded variable length numbers. Small positive and negative numbers need fewer bytes.
+ */
+final class VarInts {
+
+    private VarInts() {
+    }
+
+    static void writeInt(final ByteArrayOutputStream out, final int value) {
+        writeUnsigned(out, ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+    }
+
+    static void writeLong(final ByteArrayOutputStream out, final long value) {
+        writeUnsigned(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static void writeUnsigned(final ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Reads a zigzag encoded varint
+     *
+     * @param position Single-element array holding the read position, which gets advanced
+     */
+    static int readInt(final byte[] bytes, final int[] position) {
+        final long raw = readUnsigned(bytes, position, 5);
+        return (int) (raw >>> 1) ^ -(int) (raw & 1);
+    }
+
+    /**
+     * Reads a zigzag encoded varlong
+     *
+     * @param position Single-element array holding the read position, which gets advanced
+     */
+    static long readLong(final byte[] bytes, final int[] position) {
+        final long raw = readUnsigned(bytes, position, 10);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    private static long readUnsigned(final byte[] bytes, final int[] position, final int maxBytes) {
+        long result = 0;
+        for (int i = 0; i < maxBytes; i++) {
+            if (position[0] >= bytes.length) {
+                throw new IllegalArgumentException("Truncated varint");
+            }
+            final byte b = bytes[position[0]++];
+            result |= (long) (b & 0x7F) << (7 * i);
+            if ((b & 0x80) == 0) return result;
+        }
+        throw new IllegalArgumentException("Varint is too long");
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.data.pdc;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.bukkit.persistence.PersistentDataAdapterContext;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Stores a list of longs as zigzag encoded varints. Numbers between -64 and 63 only need a single byte.
+ *
+ * @see CompactDataTypes#LONG_LIST
+ */
+public final class VarLongListDataType implements PersistentDataType<byte[], List<Long>> {
+
+    VarLongListDataType() {
+    }
+
+    @NotNull
+    @Override
+    public Class<byte[]> getPrimitiveType() {
+        return byte[].class;
+    }
+
+    @NotNull
+    @Override
+    @SuppressWarnings("unchecked")
+    public Class<List<Long>> getComplexType() {
+        return (Class<List<Long>>) (Class<?>) List.class;
+    }
+
+    @NotNull
+    @Override
+    public byte[] toPrimitive(@NotNull final List<Long> complex, @NotNull final PersistentDataAdapterContext context) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(complex.size() + 1);
+        VarInts.writeInt(out, complex.size());
+        for (final Long value : complex) {
+            VarInts.writeLong(out, value);
+        }
+        return out.toByteArray();
+    }
+
+    @NotNull
+    @Override
+    public List<Long> fromPrimitive(@NotNull final byte[] primitive, @NotNull final PersistentDataAdapterContext context) {
+        final int[] position = {0};
+        final int size = VarInts.readInt(primitive, position);
+        if (size < 0 || size > primitive.length) {
+            throw new IllegalArgumentException("Invalid list size " + size);
+        }
+        final List<Long> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(VarInts.readLong(primitive, position));
+        }
+        return list;
+    }
+}
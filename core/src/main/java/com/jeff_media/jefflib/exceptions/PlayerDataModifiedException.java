@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.exceptions;
+
+import com.allatori.annotations.DoNotRename;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Gets thrown when saving an {@link com.jeff_media.jefflib.data.OfflinePlayerPersistentDataContainer} would overwrite
+ * changes that the server has written to the player's file after the container was loaded
+ */
+@DoNotRename
+public final class PlayerDataModifiedException extends IOException {
+
+    public PlayerDataModifiedException(final File file) {
+        super("Player data file " + file.getName() + " has been modified by the server after it was loaded");
+    }
+}
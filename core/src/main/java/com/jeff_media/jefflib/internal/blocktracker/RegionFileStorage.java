@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.blocktracker;
+
+import com.jeff_media.jefflib.JeffLib;
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Stores {@link TrackedChunk}s in {@link TrackerRegionFile}s inside a folder, using one subfolder per world.
+ * <p>
+ * Writes are done asynchronously on a single I/O thread. The latest pending snapshot of every chunk is kept in memory
+ * until it has been written, so reads always see the most recent data, and multiple pending writes of the same chunk
+ * are coalesced into one.
+ */
+@Internal
+public final class RegionFileStorage {
+
+    private static final int MAX_OPEN_FILES = 64;
+
+    private final File directory;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "JeffLib BlockTracker I/O");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<ChunkPos, TrackedChunk> pending = new ConcurrentHashMap<>();
+    private volatile boolean closed = false;
+    private final Map<RegionPos, TrackerRegionFile> openFiles = new LinkedHashMap<RegionPos, TrackerRegionFile>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<RegionPos, TrackerRegionFile> eldest) {
+            if (size() <= MAX_OPEN_FILES) return false;
+            closeQuietly(eldest.getValue());
+            return true;
+        }
+    };
+
+    public RegionFileStorage(@NotNull final File directory) {
+        this.directory = directory;
+    }
+
+    private static void closeQuietly(final TrackerRegionFile file) {
+        try {
+            file.close();
+        } catch (final IOException exception) {
+            JeffLib.getLogger().log(Level.WARNING, "[JeffLib] Could not close BlockTracker region file", exception);
+        }
+    }
+
+    private synchronized TrackerRegionFile getFile(final RegionPos pos, final boolean create) throws IOException {
+        TrackerRegionFile file = openFiles.get(pos);
+        if (file != null) return file;
+        final File worldDirectory = new File(directory, pos.world.toString());
+        final File regionFile = new File(worldDirectory, TrackerRegionFile.getFileName(pos.x, pos.z));
+        if (!regionFile.exists()) {
+            if (!create) return null;
+            if (!worldDirectory.isDirectory() && !worldDirectory.mkdirs()) {
+                throw new IOException("Could not create directory " + worldDirectory.getAbsolutePath());
+            }
+        }
+        file = new TrackerRegionFile(regionFile);
+        openFiles.put(pos, file);
+        return file;
+    }
+
+    /**
+     * Reads a chunk's data. Returns null if there's no stored data for this chunk.
+     */
+    @Nullable
+    public TrackedChunk read(@NotNull final UUID world, final int chunkX, final int chunkZ, final int minSection, final int sectionCount) {
+        final TrackedChunk pendingChunk = pending.get(new ChunkPos(world, chunkX, chunkZ));
+        if (pendingChunk != null) return pendingChunk.copy();
+        final RegionPos regionPos = new RegionPos(world, chunkX >> 5, chunkZ >> 5);
+        try {
+            while (true) {
+                final TrackerRegionFile file = getFile(regionPos, false);
+                if (file == null) return null;
+                try {
+                    return file.read(chunkX, chunkZ, minSection, sectionCount);
+                } catch (final ClosedChannelException ignored) {
+                    // The file has been closed by another thread in the meantime, so it has to be opened again
+                }
+            }
+        } catch (final IOException exception) {
+            JeffLib.getLogger().log(Level.SEVERE, "[JeffLib] Could not read BlockTracker data of chunk " + chunkX + ", " + chunkZ + " in world " + world, exception);
+            return null;
+        } finally {
+            if (closed) closeFiles();
+        }
+    }
+
+    /**
+     * Schedules writing a snapshot of the chunk's data. After {@link #close()}, the data is written immediately instead.
+     */
+    public void write(@NotNull final UUID world, final int chunkX, final int chunkZ, @NotNull final TrackedChunk chunk) {
+        final ChunkPos pos = new ChunkPos(world, chunkX, chunkZ);
+        final TrackedChunk snapshot = chunk.copy();
+        if (closed) {
+            // The I/O thread is gone, e.g. because the plugin writes data in its onDisable
+            writeToFile(world, chunkX, chunkZ, snapshot);
+            closeFiles();
+            return;
+        }
+        pending.put(pos, snapshot);
+        executor.execute(() -> {
+            // A newer snapshot has been queued in the meantime, which will be written by its own task
+            if (pending.get(pos) != snapshot) return;
+            try {
+                writeToFile(world, chunkX, chunkZ, snapshot);
+            } finally {
+                pending.remove(pos, snapshot);
+            }
+        });
+    }
+
+    private void writeToFile(final UUID world, final int chunkX, final int chunkZ, final TrackedChunk snapshot) {
+        final RegionPos regionPos = new RegionPos(world, chunkX >> 5, chunkZ >> 5);
+        try {
+            while (true) {
+                try {
+                    getFile(regionPos, true).write(chunkX, chunkZ, snapshot);
+                    break;
+                } catch (final ClosedChannelException ignored) {
+                    // The file has been closed by another thread in the meantime, so it has to be opened again
+                }
+            }
+        } catch (final IOException exception) {
+            JeffLib.getLogger().log(Level.SEVERE, "[JeffLib] Could not write BlockTracker data of chunk " + chunkX + ", " + chunkZ + " in world " + world, exception);
+        }
+    }
+
+    /**
+     * Gets the amount of chunks that are waiting to be written
+     */
+    public int getPendingWrites() {
+        return pending.size();
+    }
+
+    /**
+     * Waits for all pending writes and closes all files. Afterwards, reads and writes are still possible, but they're done
+     * synchronously and don't keep any files open.
+     */
+    public void close() {
+        closed = true;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                JeffLib.getLogger().severe("[JeffLib] Timed out while writing BlockTracker data, " + pending.size() + " chunks could not be saved");
+            }
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        closeFiles();
+    }
+
+    private synchronized void closeFiles() {
+        openFiles.values().forEach(RegionFileStorage::closeQuietly);
+        openFiles.clear();
+    }
+
+    private static final class RegionPos {
+        private final UUID world;
+        private final int x;
+        private final int z;
+
+        private RegionPos(final UUID world, final int x, final int z) {
+            this.world = world;
+            this.x = x;
+            this.z = z;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final RegionPos that = (RegionPos) o;
+            return x == that.x && z == that.z && world.equals(that.world);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(world, x, z);
+        }
+    }
+
+    private static final class ChunkPos {
+        private final UUID world;
+        private final int x;
+        private final int z;
+
+        private ChunkPos(final UUID world, final int x, final int z) {
+            this.world = world;
+            this.x = x;
+            this.z = z;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final ChunkPos that = (ChunkPos) o;
+            return x == that.x && z == that.z && world.equals(that.world);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(world, x, z);
+        }
+    }
+}
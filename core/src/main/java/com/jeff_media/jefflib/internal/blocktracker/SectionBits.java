@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.blocktracker;
+
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Bit operations on a single 16x16x16 chunk section, stored as 64 longs (4096 bits).
+ * <p>
+ * The bit index of a block is <code>y &lt;&lt; 8 | z &lt;&lt; 4 | x</code> (using the block's coordinates relative to the section),
+ * which means that every long contains four complete x-rows of the section.
+ */
+@Internal
+@UtilityClass
+public class SectionBits {
+
+    /**
+     * Amount of longs needed to store one bit for every block in a section
+     */
+    public static final int LONGS_PER_SECTION = 64;
+
+    /**
+     * Returns the bit index of the given block coordinates. Only the lowest 4 bits of each coordinate are used.
+     */
+    public static int index(final int x, final int y, final int z) {
+        return (y & 0xF) << 8 | (z & 0xF) << 4 | (x & 0xF);
+    }
+
+    /**
+     * Gets the bit at the given index
+     */
+    public static boolean get(final long[] bits, final int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Sets or clears the bit at the given index
+     *
+     * @return true if the bit has been changed, otherwise false
+     */
+    public static boolean set(final long[] bits, final int index, final boolean value) {
+        final int word = index >>> 6;
+        final long mask = 1L << index;
+        final long old = bits[word];
+        bits[word] = value ? old | mask : old & ~mask;
+        return old != bits[word];
+    }
+
+    /**
+     * Checks whether no bit is set
+     */
+    public static boolean isEmpty(final long[] bits) {
+        for (final long word : bits) {
+            if (word != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the amount of set bits
+     */
+    public static int count(final long[] bits) {
+        int count = 0;
+        for (final long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether the given array has the expected length of a section bitset
+     */
+    public static boolean isValid(final long[] bits) {
+        return bits != null && bits.length == LONGS_PER_SECTION;
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.blocktracker;
+
+import com.jeff_media.jefflib.BlockTracker;
+import com.jeff_media.jefflib.WorldUtils;
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * In-memory copy of the tracked blocks of a single chunk, stored as one {@link SectionBits} bitset per section.
+ * Sections without any tracked blocks are not allocated.
+ */
+@Internal
+public final class TrackedChunk {
+
+    private static final int SCAN_COUNT = 0;
+    private static final int SCAN_VISIT = 1;
+    private static final int SCAN_CLEAR = 2;
+
+    private final int minSection;
+    private final long[][] sections;
+    private volatile boolean dirty;
+
+    public TrackedChunk(final int minSection, final int sectionCount) {
+        this.minSection = minSection;
+        this.sections = new long[sectionCount][];
+    }
+
+    /**
+     * Creates an empty TrackedChunk with the section range matching the given world's height
+     */
+    public static TrackedChunk forWorld(@NotNull final World world) {
+        return new TrackedChunk(getMinSection(world), getSectionCount(world));
+    }
+
+    /**
+     * Gets the lowest section Y coordinate of the given world
+     */
+    public static int getMinSection(@NotNull final World world) {
+        return WorldUtils.getWorldMinHeight(world) >> 4;
+    }
+
+    /**
+     * Gets the amount of sections per chunk in the given world
+     */
+    public static int getSectionCount(@NotNull final World world) {
+        return ((world.getMaxHeight() - 1) >> 4) - getMinSection(world) + 1;
+    }
+
+    public int getMinSection() {
+        return minSection;
+    }
+
+    public int getSectionCount() {
+        return sections.length;
+    }
+
+    /**
+     * Gets the bitset of the given section, or null if it doesn't contain any tracked blocks
+     */
+    @Nullable
+    public long[] getSection(final int sectionY) {
+        final int index = sectionY - minSection;
+        if (index < 0 || index >= sections.length) return null;
+        return sections[index];
+    }
+
+    /**
+     * Replaces the bitset of the given section. Sections outside of this chunk's height are ignored.
+     */
+    public void setSection(final int sectionY, @Nullable final long[] bits) {
+        final int index = sectionY - minSection;
+        if (index < 0 || index >= sections.length) return;
+        sections[index] = bits == null || SectionBits.isEmpty(bits) ? null : bits;
+    }
+
+    public boolean get(final int x, final int y, final int z) {
+        final long[] bits = getSection(y >> 4);
+        return bits != null && SectionBits.get(bits, SectionBits.index(x, y, z));
+    }
+
+    /**
+     * Sets whether the given block is tracked and marks this chunk as dirty if anything changed
+     *
+     * @return true if the value has been changed, otherwise false
+     */
+    public boolean set(final int x, final int y, final int z, final boolean value) {
+        final int index = (y >> 4) - minSection;
+        if (index < 0 || index >= sections.length) return false;
+        long[] bits = sections[index];
+        if (bits == null) {
+            if (!value) return false;
+            bits = new long[SectionBits.LONGS_PER_SECTION];
+            sections[index] = bits;
+        }
+        if (!SectionBits.set(bits, SectionBits.index(x, y, z), value)) return false;
+        dirty = true;
+        return true;
+    }
+
+    /**
+     * Creates a deep copy of this chunk's data. The copy is not marked as dirty.
+     */
+    public TrackedChunk copy() {
+        final TrackedChunk copy = new TrackedChunk(minSection, sections.length);
+        for (int i = 0; i < sections.length; i++) {
+            final long[] bits = sections[i];
+            if (bits != null) {
+                copy.sections[i] = bits.clone();
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Counts the tracked blocks inside the given area. X and Z coordinates are relative to the chunk (0 - 15), Y
+     * coordinates are absolute. All bounds are inclusive.
+     */
+    public long count(final int minX, final int minY, final int minZ, final int maxX, final int maxY, final int maxZ) {
+        return scan(minX, minY, minZ, maxX, maxY, maxZ, SCAN_COUNT, 0, 0, null);
+    }
+
+    /**
+     * Calls the visitor for every tracked block inside the given area, using absolute coordinates
+     *
+     * @return Amount of visited blocks
+     * @see #count(int, int, int, int, int, int)
+     */
+    public long forEach(final int minX, final int minY, final int minZ, final int maxX, final int maxY, final int maxZ,
+                        final int chunkX, final int chunkZ, @NotNull final BlockTracker.PositionVisitor visitor) {
+        return scan(minX, minY, minZ, maxX, maxY, maxZ, SCAN_VISIT, chunkX << 4, chunkZ << 4, visitor);
+    }
+
+    /**
+     * Removes all tracked blocks inside the given area and marks this chunk as dirty if anything changed
+     *
+     * @return Amount of removed blocks
+     * @see #count(int, int, int, int, int, int)
+     */
+    public long clear(final int minX, final int minY, final int minZ, final int maxX, final int maxY, final int maxZ) {
+        final long cleared = scan(minX, minY, minZ, maxX, maxY, maxZ, SCAN_CLEAR, 0, 0, null);
+        if (cleared > 0) {
+            dirty = true;
+        }
+        return cleared;
+    }
+
+    /**
+     * Scans the area row by row. Every long of a section contains four complete x-rows, so each row is a single
+     * shift and mask operation.
+     */
+    private long scan(final int minX, final int minY, final int minZ, final int maxX, final int maxY, final int maxZ,
+                      final int mode, final int baseX, final int baseZ, final BlockTracker.PositionVisitor visitor) {
+        final long rowMask = ((1L << (maxX - minX + 1)) - 1) << minX;
+        final boolean fullRows = minX == 0 && maxX == 15 && minZ == 0 && maxZ == 15;
+        final int fromSection = Math.max(minY >> 4, minSection);
+        final int toSection = Math.min(maxY >> 4, minSection + sections.length - 1);
+        long result = 0;
+        for (int sectionY = fromSection; sectionY <= toSection; sectionY++) {
+            final long[] bits = sections[sectionY - minSection];
+            if (bits == null) continue;
+            final int fromY = Math.max(minY, sectionY << 4) & 0xF;
+            final int toY = Math.min(maxY, (sectionY << 4) + 15) & 0xF;
+            if (mode == SCAN_COUNT && fullRows && fromY == 0 && toY == 15) {
+                result += SectionBits.count(bits);
+                continue;
+            }
+            for (int y = fromY; y <= toY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    final int word = y << 2 | z >>> 2;
+                    final int shift = (z & 3) << 4;
+                    long row = (bits[word] >>> shift) & rowMask;
+                    if (row == 0) continue;
+                    result += Long.bitCount(row);
+                    if (mode == SCAN_CLEAR) {
+                        bits[word] &= ~(row << shift);
+                    } else if (mode == SCAN_VISIT) {
+                        final int blockY = (sectionY << 4) + y;
+                        while (row != 0) {
+                            visitor.visit(baseX + Long.numberOfTrailingZeros(row), blockY, baseZ + z);
+                            row &= row - 1;
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    public boolean isEmpty() {
+        for (final long[] bits : sections) {
+            if (bits != null && !SectionBits.isEmpty(bits)) return false;
+        }
+        return true;
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void setDirty(final boolean dirty) {
+        this.dirty = dirty;
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.blocktracker;
+
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Holds the {@link TrackedChunk}s of all loaded chunks, grouped by world, and counts cache hits, misses and flushes.
+ */
+@Internal
+public final class TrackedChunkCache {
+
+    private final Map<UUID, Map<Long, TrackedChunk>> worlds = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedChunks = new LongAdder();
+    private final LongAdder flushNanos = new LongAdder();
+
+    public static long getChunkKey(final int chunkX, final int chunkZ) {
+        return (long) chunkX << 32 | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    public static int getChunkX(final long chunkKey) {
+        return (int) (chunkKey >> 32);
+    }
+
+    public static int getChunkZ(final long chunkKey) {
+        return (int) chunkKey;
+    }
+
+    /**
+     * Gets the cached chunk and counts a hit or a miss
+     */
+    @Nullable
+    public TrackedChunk get(@NotNull final World world, final int chunkX, final int chunkZ) {
+        final Map<Long, TrackedChunk> chunks = worlds.get(world.getUID());
+        final TrackedChunk chunk = chunks == null ? null : chunks.get(getChunkKey(chunkX, chunkZ));
+        if (chunk == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return chunk;
+    }
+
+    /**
+     * Gets the cached chunk without counting a hit or a miss
+     */
+    @Nullable
+    public TrackedChunk peek(@NotNull final World world, final int chunkX, final int chunkZ) {
+        final Map<Long, TrackedChunk> chunks = worlds.get(world.getUID());
+        return chunks == null ? null : chunks.get(getChunkKey(chunkX, chunkZ));
+    }
+
+    public void put(@NotNull final World world, final int chunkX, final int chunkZ, @NotNull final TrackedChunk chunk) {
+        worlds.computeIfAbsent(world.getUID(), __ -> new ConcurrentHashMap<>()).put(getChunkKey(chunkX, chunkZ), chunk);
+    }
+
+    @Nullable
+    public TrackedChunk remove(@NotNull final World world, final int chunkX, final int chunkZ) {
+        final Map<Long, TrackedChunk> chunks = worlds.get(world.getUID());
+        return chunks == null ? null : chunks.remove(getChunkKey(chunkX, chunkZ));
+    }
+
+    /**
+     * Returns a live view of all cached chunks of the given world, mapped by their chunk key
+     *
+     * @see #getChunkKey(int, int)
+     */
+    @NotNull
+    public Map<Long, TrackedChunk> getChunks(@NotNull final World world) {
+        final Map<Long, TrackedChunk> chunks = worlds.get(world.getUID());
+        return chunks == null ? Collections.emptyMap() : chunks;
+    }
+
+    public Collection<UUID> getWorlds() {
+        return worlds.keySet();
+    }
+
+    public void removeWorld(@NotNull final UUID world) {
+        worlds.remove(world);
+    }
+
+    public void markAllDirty() {
+        for (final Map<Long, TrackedChunk> chunks : worlds.values()) {
+            for (final TrackedChunk chunk : chunks.values()) {
+                chunk.setDirty(true);
+            }
+        }
+    }
+
+    public void clear() {
+        worlds.clear();
+    }
+
+    public int size() {
+        int size = 0;
+        for (final Map<Long, TrackedChunk> chunks : worlds.values()) {
+            size += chunks.size();
+        }
+        return size;
+    }
+
+    /**
+     * Records a flush operation
+     *
+     * @param chunks Amount of chunks that have been written
+     * @param nanos  Time the flush took in nanoseconds
+     */
+    public void recordFlush(final int chunks, final long nanos) {
+        flushes.increment();
+        flushedChunks.add(chunks);
+        flushNanos.add(nanos);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getFlushes() {
+        return flushes.sum();
+    }
+
+    public long getFlushedChunks() {
+        return flushedChunks.sum();
+    }
+
+    public long getFlushNanos() {
+        return flushNanos.sum();
+    }
+
+    public void resetStats() {
+        hits.reset();
+        misses.reset();
+        flushes.reset();
+        flushedChunks.reset();
+        flushNanos.reset();
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.blocktracker;
+
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.zip.CRC32;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A file storing the tracked blocks of 32x32 chunks, organised like Minecraft's .mca region files.
+ * <p>
+ * The file starts with a memory-mapped index of 1024 fixed-offset entries, one per chunk, each containing the first
+ * sector and the sector count of the chunk's data. Chunk data is never overwritten in place: new data is written to free
+ * sectors and synced to disk before the index entry is updated with a single 8-byte write. After a crash, every entry
+ * therefore points to either the old or the new data. Each chunk's data also carries a CRC32 checksum.
+ * <p>
+ * Chunk data layout: <code>int crc32, int length, short sectionCount, (byte sectionY, long[64] bits) * sectionCount</code>
+ */
+@Internal
+public final class TrackerRegionFile implements Closeable {
+
+    public static final String EXTENSION = ".jbt";
+    private static final int SECTOR_SIZE = 512;
+    private static final int CHUNKS = 32 * 32;
+    private static final int HEADER_SIZE = CHUNKS * Long.BYTES;
+    private static final int HEADER_SECTORS = HEADER_SIZE / SECTOR_SIZE;
+    private static final int DATA_HEADER_SIZE = Integer.BYTES * 2;
+    private static final int SECTION_SIZE = 1 + SectionBits.LONGS_PER_SECTION * Long.BYTES;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer index;
+    private final BitSet usedSectors = new BitSet();
+
+    public TrackerRegionFile(@NotNull final File file) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.index = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        usedSectors.set(0, HEADER_SECTORS);
+        final long fileSectors = (channel.size() + SECTOR_SIZE - 1) / SECTOR_SIZE;
+        for (int i = 0; i < CHUNKS; i++) {
+            final long entry = index.getLong(i * Long.BYTES);
+            if (entry == 0) continue;
+            final int offset = getOffset(entry);
+            final int count = getSectorCount(entry);
+            if (offset < HEADER_SECTORS || offset + count > fileSectors) {
+                // Points outside of the file, e.g. because the file has been truncated
+                index.putLong(i * Long.BYTES, 0);
+                continue;
+            }
+            usedSectors.set(offset, offset + count);
+        }
+    }
+
+    public static String getFileName(final int regionX, final int regionZ) {
+        return "r." + regionX + "." + regionZ + EXTENSION;
+    }
+
+    private static int getIndex(final int chunkX, final int chunkZ) {
+        return (chunkX & 31) + (chunkZ & 31) * 32;
+    }
+
+    private static int getOffset(final long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    private static int getSectorCount(final long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * Reads a chunk's data, or returns null if this file doesn't contain valid data for the chunk
+     */
+    @Nullable
+    public synchronized TrackedChunk read(final int chunkX, final int chunkZ, final int minSection, final int sectionCount) throws IOException {
+        final long entry = index.getLong(getIndex(chunkX, chunkZ) * Long.BYTES);
+        if (entry == 0) return null;
+        final ByteBuffer buffer = ByteBuffer.allocate(getSectorCount(entry) * SECTOR_SIZE);
+        channel.read(buffer, (long) getOffset(entry) * SECTOR_SIZE);
+        buffer.flip();
+        if (buffer.remaining() < DATA_HEADER_SIZE) return null;
+        final int crc = buffer.getInt();
+        final int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) return null;
+        final CRC32 checksum = new CRC32();
+        checksum.update(buffer.array(), DATA_HEADER_SIZE, length);
+        if ((int) checksum.getValue() != crc) return null;
+
+        final TrackedChunk chunk = new TrackedChunk(minSection, sectionCount);
+        final int sections = buffer.getShort();
+        if (Short.BYTES + sections * SECTION_SIZE != length) return null;
+        for (int i = 0; i < sections; i++) {
+            final int sectionY = buffer.get();
+            final long[] bits = new long[SectionBits.LONGS_PER_SECTION];
+            buffer.asLongBuffer().get(bits);
+            buffer.position(buffer.position() + SectionBits.LONGS_PER_SECTION * Long.BYTES);
+            chunk.setSection(sectionY, bits);
+        }
+        return chunk;
+    }
+
+    /**
+     * Writes a chunk's data, or removes it if the chunk doesn't contain any tracked blocks
+     */
+    public synchronized void write(final int chunkX, final int chunkZ, @NotNull final TrackedChunk chunk) throws IOException {
+        final int entryPosition = getIndex(chunkX, chunkZ) * Long.BYTES;
+        final long oldEntry = index.getLong(entryPosition);
+
+        int sections = 0;
+        for (int sectionY = chunk.getMinSection(); sectionY < chunk.getMinSection() + chunk.getSectionCount(); sectionY++) {
+            if (chunk.getSection(sectionY) != null) sections++;
+        }
+
+        long newEntry = 0;
+        if (sections > 0) {
+            final int length = Short.BYTES + sections * SECTION_SIZE;
+            final int sectorCount = (DATA_HEADER_SIZE + length + SECTOR_SIZE - 1) / SECTOR_SIZE;
+            final ByteBuffer buffer = ByteBuffer.allocate(sectorCount * SECTOR_SIZE);
+            buffer.position(DATA_HEADER_SIZE);
+            buffer.putShort((short) sections);
+            for (int sectionY = chunk.getMinSection(); sectionY < chunk.getMinSection() + chunk.getSectionCount(); sectionY++) {
+                final long[] bits = chunk.getSection(sectionY);
+                if (bits == null) continue;
+                buffer.put((byte) sectionY);
+                for (final long word : bits) {
+                    buffer.putLong(word);
+                }
+            }
+            final CRC32 checksum = new CRC32();
+            checksum.update(buffer.array(), DATA_HEADER_SIZE, length);
+            buffer.putInt(0, (int) checksum.getValue());
+            buffer.putInt(Integer.BYTES, length);
+            buffer.rewind();
+
+            final int offset = allocate(sectorCount);
+            long position = (long) offset * SECTOR_SIZE;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            channel.force(false);
+            newEntry = (long) offset << 32 | sectorCount;
+        }
+
+        if (newEntry == oldEntry) return;
+        index.putLong(entryPosition, newEntry);
+        index.force();
+        if (oldEntry != 0) {
+            usedSectors.clear(getOffset(oldEntry), getOffset(oldEntry) + getSectorCount(oldEntry));
+        }
+    }
+
+    /**
+     * Finds the first run of free sectors that is large enough, and marks it as used. The sectors of the data that
+     * is being replaced are still marked as used at this point, so they're never overwritten.
+     */
+    private int allocate(final int sectorCount) {
+        int start = HEADER_SECTORS;
+        while (true) {
+            start = usedSectors.nextClearBit(start);
+            final int nextUsed = usedSectors.nextSetBit(start);
+            if (nextUsed == -1 || nextUsed - start >= sectorCount) {
+                usedSectors.set(start, start + sectorCount);
+                return start;
+            }
+            start = nextUsed;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        index.force();
+        channel.close();
+    }
+}
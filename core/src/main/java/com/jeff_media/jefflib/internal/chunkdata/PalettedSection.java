@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.chunkdata;
+
+import com.jeff_media.jefflib.data.ChunkDataCodec;
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Stores one value per block of a 16x16x16 section. Every distinct value is only stored once in the palette, while
+ * the blocks only store the palette index, using as few bits as possible. Palette index 0 always means "no value".
+ * <p>
+ * Index widths are always a power of two, so that no index spans two longs. A section with a single value type
+ * therefore uses 64 longs, the same as a plain bitset.
+ */
+@Internal
+public final class PalettedSection<T> {
+
+    public static final int SIZE = 4096;
+    private static final int MAX_BITS = 16;
+
+    private final List<T> palette = new ArrayList<>();
+    private final Map<T, Integer> ids = new HashMap<>();
+    private int bits;
+    private long[] data;
+    private int nonEmpty;
+
+    public PalettedSection() {
+        palette.add(null);
+    }
+
+    /**
+     * Gets the index of the block inside a section
+     */
+    public static int index(final int x, final int y, final int z) {
+        return (y & 0xF) << 8 | (z & 0xF) << 4 | (x & 0xF);
+    }
+
+    @Nullable
+    public T get(final int index) {
+        if (data == null) return null;
+        return palette.get(getId(index));
+    }
+
+    /**
+     * Sets the value of a block
+     *
+     * @return true if the value has changed
+     */
+    public boolean set(final int index, @Nullable final T value) {
+        final int newId = value == null ? 0 : getOrCreateId(value);
+        if (data == null) {
+            if (newId == 0) return false;
+            resize(getRequiredBits(palette.size()));
+        }
+        final int oldId = getId(index);
+        if (oldId == newId) return false;
+        setId(index, newId);
+        if (oldId == 0) nonEmpty++;
+        else if (newId == 0) nonEmpty--;
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return nonEmpty == 0;
+    }
+
+    /**
+     * Gets the amount of blocks that have a value
+     */
+    public int count() {
+        return nonEmpty;
+    }
+
+    /**
+     * Gets the amount of bits used per block
+     */
+    public int getBitsPerBlock() {
+        return bits;
+    }
+
+    /**
+     * Writes this section, leaving out palette entries that are no longer used
+     */
+    public void write(@NotNull final DataOutput out, @NotNull final ChunkDataCodec<T> codec) throws IOException {
+        final int[] remap = new int[palette.size()];
+        final List<T> used = new ArrayList<>();
+        used.add(null);
+        for (int i = 0; i < SIZE && data != null; i++) {
+            final int id = getId(i);
+            if (id != 0 && remap[id] == 0) {
+                remap[id] = used.size();
+                used.add(palette.get(id));
+            }
+        }
+        out.writeShort(used.size() - 1);
+        for (int i = 1; i < used.size(); i++) {
+            codec.write(out, used.get(i));
+        }
+        final int newBits = getRequiredBits(used.size());
+        if (newBits == 0) return;
+        final int perLong = 64 / newBits;
+        long word = 0;
+        for (int i = 0; i < SIZE; i++) {
+            word |= (long) remap[getId(i)] << ((i % perLong) * newBits);
+            if (i % perLong == perLong - 1) {
+                out.writeLong(word);
+                word = 0;
+            }
+        }
+    }
+
+    /**
+     * Reads a section that has been written using {@link #write(DataOutput, ChunkDataCodec)}
+     */
+    @NotNull
+    public static <T> PalettedSection<T> read(@NotNull final DataInput in, @NotNull final ChunkDataCodec<T> codec) throws IOException {
+        final PalettedSection<T> section = new PalettedSection<>();
+        final int size = in.readUnsignedShort();
+        for (int i = 0; i < size; i++) {
+            final T value = codec.read(in);
+            section.ids.put(value, section.palette.size());
+            section.palette.add(value);
+        }
+        final int bits = getRequiredBits(section.palette.size());
+        if (bits == 0) return section;
+        section.bits = bits;
+        section.data = new long[SIZE * bits / 64];
+        for (int i = 0; i < section.data.length; i++) {
+            section.data[i] = in.readLong();
+        }
+        for (int i = 0; i < SIZE; i++) {
+            final int id = section.getId(i);
+            if (id >= section.palette.size()) {
+                throw new IOException("Invalid palette index " + id);
+            }
+            if (id != 0) section.nonEmpty++;
+        }
+        return section;
+    }
+
+    private int getOrCreateId(final T value) {
+        final Integer id = ids.get(value);
+        if (id != null) return id;
+        if (palette.size() == 1 << MAX_BITS) {
+            compact();
+            if (palette.size() == 1 << MAX_BITS) {
+                throw new IllegalStateException("A section cannot contain more than " + ((1 << MAX_BITS) - 1) + " different values");
+            }
+        }
+        final int newId = palette.size();
+        palette.add(value);
+        ids.put(value, newId);
+        if (data != null && newId >= 1 << bits) {
+            resize(getRequiredBits(palette.size()));
+        }
+        return newId;
+    }
+
+    /**
+     * Removes unused palette entries
+     */
+    private void compact() {
+        final int[] remap = new int[palette.size()];
+        final List<T> used = new ArrayList<>();
+        used.add(null);
+        for (int i = 0; i < SIZE; i++) {
+            final int id = getId(i);
+            if (id != 0 && remap[id] == 0) {
+                remap[id] = used.size();
+                used.add(palette.get(id));
+            }
+        }
+        for (int i = 0; i < SIZE; i++) {
+            setId(i, remap[getId(i)]);
+        }
+        palette.clear();
+        palette.addAll(used);
+        ids.clear();
+        for (int i = 1; i < palette.size(); i++) {
+            ids.put(palette.get(i), i);
+        }
+    }
+
+    private void resize(final int newBits) {
+        final long[] oldData = data;
+        final int oldBits = bits;
+        bits = newBits;
+        data = new long[SIZE * newBits / 64];
+        if (oldData == null) return;
+        final int oldPerLong = 64 / oldBits;
+        final long oldMask = (1L << oldBits) - 1;
+        for (int i = 0; i < SIZE; i++) {
+            setId(i, (int) ((oldData[i / oldPerLong] >>> ((i % oldPerLong) * oldBits)) & oldMask));
+        }
+    }
+
+    private int getId(final int index) {
+        if (data == null) return 0;
+        final int perLong = 64 / bits;
+        return (int) ((data[index / perLong] >>> ((index % perLong) * bits)) & ((1L << bits) - 1));
+    }
+
+    private void setId(final int index, final int id) {
+        final int perLong = 64 / bits;
+        final int shift = (index % perLong) * bits;
+        final long mask = ((1L << bits) - 1) << shift;
+        final int word = index / perLong;
+        data[word] = (data[word] & ~mask) | ((long) id << shift);
+    }
+
+    /**
+     * Gets the smallest power of two bits that can store all indices of a palette with the given size
+     */
+    private static int getRequiredBits(final int paletteSize) {
+        if (paletteSize <= 1) return 0;
+        int bits = 1;
+        while (1 << bits < paletteSize) {
+            bits <<= 1;
+        }
+        return bits;
+    }
+}
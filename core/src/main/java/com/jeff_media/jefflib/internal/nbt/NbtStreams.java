@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.nbt;
+
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Streams through binary NBT without building any tag objects. Used to read or replace a single compound of large
+ * files, e.g. the BukkitValues of a player's .dat file, without decoding the inventory, ender chest, etc.
+ */
+@Internal
+@UtilityClass
+public class NbtStreams {
+
+    public static final int TAG_END = 0;
+    public static final int TAG_BYTE = 1;
+    public static final int TAG_SHORT = 2;
+    public static final int TAG_INT = 3;
+    public static final int TAG_LONG = 4;
+    public static final int TAG_FLOAT = 5;
+    public static final int TAG_DOUBLE = 6;
+    public static final int TAG_BYTE_ARRAY = 7;
+    public static final int TAG_STRING = 8;
+    public static final int TAG_LIST = 9;
+    public static final int TAG_COMPOUND = 10;
+    public static final int TAG_INT_ARRAY = 11;
+    public static final int TAG_LONG_ARRAY = 12;
+
+    private static final int MAX_DEPTH = 512;
+
+    /**
+     * Reads the payload of a compound that is a direct child of the root compound, skipping all other tags
+     *
+     * @param in   Input, positioned at the start of the root tag
+     * @param name Name of the child compound
+     * @return The compound's payload, or null if the root compound doesn't contain a compound with that name
+     */
+    @Nullable
+    public static byte[] readChildCompound(@NotNull final DataInput in, @NotNull final String name) throws IOException {
+        readRootHeader(in);
+        while (true) {
+            final int type = in.readUnsignedByte();
+            if (type == TAG_END) return null;
+            final String tagName = in.readUTF();
+            if (type == TAG_COMPOUND && tagName.equals(name)) {
+                final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                transfer(in, new DataOutputStream(bytes), type, 0);
+                return bytes.toByteArray();
+            }
+            transfer(in, null, type, 0);
+        }
+    }
+
+    /**
+     * Copies the root compound from in to out, replacing a direct child compound. All other tags are copied as they are.
+     *
+     * @param in      Input, positioned at the start of the root tag
+     * @param out     Output
+     * @param name    Name of the child compound
+     * @param payload New payload of the child compound, or null to remove it
+     */
+    public static void replaceChildCompound(@NotNull final DataInput in, @NotNull final DataOutput out, @NotNull final String name, @Nullable final byte[] payload) throws IOException {
+        final String rootName = readRootHeader(in);
+        out.writeByte(TAG_COMPOUND);
+        out.writeUTF(rootName);
+        boolean replaced = false;
+        while (true) {
+            final int type = in.readUnsignedByte();
+            if (type == TAG_END) break;
+            final String tagName = in.readUTF();
+            if (tagName.equals(name)) {
+                transfer(in, null, type, 0);
+                if (payload != null && !replaced) {
+                    writeCompound(out, name, payload);
+                }
+                replaced = true;
+                continue;
+            }
+            out.writeByte(type);
+            out.writeUTF(tagName);
+            transfer(in, out, type, 0);
+        }
+        if (payload != null && !replaced) {
+            writeCompound(out, name, payload);
+        }
+        out.writeByte(TAG_END);
+    }
+
+    /**
+     * Gets the offset of the payload inside a named root tag, i.e. the length of its type and name
+     */
+    public static int getRootPayloadOffset(@NotNull final byte[] nbt) {
+        return 3 + ((nbt[1] & 0xFF) << 8 | (nbt[2] & 0xFF));
+    }
+
+    /**
+     * Turns a compound payload into a root compound with an empty name
+     */
+    @NotNull
+    public static byte[] toRootCompound(@NotNull final byte[] payload) {
+        final byte[] nbt = new byte[payload.length + 3];
+        nbt[0] = TAG_COMPOUND;
+        System.arraycopy(payload, 0, nbt, 3, payload.length);
+        return nbt;
+    }
+
+    private static String readRootHeader(final DataInput in) throws IOException {
+        final int type = in.readUnsignedByte();
+        if (type != TAG_COMPOUND) {
+            throw new IOException("Root tag must be a compound, but is " + type);
+        }
+        return in.readUTF();
+    }
+
+    private static void writeCompound(final DataOutput out, final String name, final byte[] payload) throws IOException {
+        out.writeByte(TAG_COMPOUND);
+        out.writeUTF(name);
+        out.write(payload);
+    }
+
+    /**
+     * Copies the payload of a tag from in to out, or skips it if out is null
+     */
+    private static void transfer(final DataInput in, @Nullable final DataOutput out, final int type, final int depth) throws IOException {
+        if (depth > MAX_DEPTH) {
+            throw new IOException("NBT is nested too deeply");
+        }
+        switch (type) {
+            case TAG_BYTE:
+                copy(in, out, 1);
+                break;
+            case TAG_SHORT:
+                copy(in, out, 2);
+                break;
+            case TAG_INT:
+            case TAG_FLOAT:
+                copy(in, out, 4);
+                break;
+            case TAG_LONG:
+            case TAG_DOUBLE:
+                copy(in, out, 8);
+                break;
+            case TAG_BYTE_ARRAY:
+                copy(in, out, (long) readLength(in, out));
+                break;
+            case TAG_INT_ARRAY:
+                copy(in, out, readLength(in, out) * 4L);
+                break;
+            case TAG_LONG_ARRAY:
+                copy(in, out, readLength(in, out) * 8L);
+                break;
+            case TAG_STRING: {
+                final int length = in.readUnsignedShort();
+                if (out != null) out.writeShort(length);
+                copy(in, out, length);
+                break;
+            }
+            case TAG_LIST: {
+                final int elementType = in.readUnsignedByte();
+                if (out != null) out.writeByte(elementType);
+                final int length = readLength(in, out);
+                for (int i = 0; i < length; i++) {
+                    transfer(in, out, elementType, depth + 1);
+                }
+                break;
+            }
+            case TAG_COMPOUND:
+                while (true) {
+                    final int childType = in.readUnsignedByte();
+                    if (out != null) out.writeByte(childType);
+                    if (childType == TAG_END) break;
+                    final int nameLength = in.readUnsignedShort();
+                    if (out != null) out.writeShort(nameLength);
+                    copy(in, out, nameLength);
+                    transfer(in, out, childType, depth + 1);
+                }
+                break;
+            default:
+                throw new IOException("Unknown NBT tag type " + type);
+        }
+    }
+
+    private static int readLength(final DataInput in, @Nullable final DataOutput out) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Negative NBT length " + length);
+        }
+        if (out != null) out.writeInt(length);
+        return length;
+    }
+
+    private static void copy(final DataInput in, @Nullable final DataOutput out, long length) throws IOException {
+        if (out == null) {
+            while (length > 0) {
+                final int skipped = in.skipBytes((int) Math.min(length, Integer.MAX_VALUE));
+                if (skipped <= 0) {
+                    // skipBytes may skip less without reaching EOF, readByte throws at EOF
+                    in.readByte();
+                    length--;
+                } else {
+                    length -= skipped;
+                }
+            }
+            return;
+        }
+        if (length <= 8) {
+            for (int i = 0; i < length; i++) {
+                out.writeByte(in.readByte());
+            }
+            return;
+        }
+        final byte[] buffer = new byte[(int) Math.min(length, 8192)];
+        while (length > 0) {
+            final int chunk = (int) Math.min(length, buffer.length);
+            in.readFully(buffer, 0, chunk);
+            out.write(buffer, 0, chunk);
+            length -= chunk;
+        }
+    }
+}
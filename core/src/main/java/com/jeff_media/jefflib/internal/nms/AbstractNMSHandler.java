@@ -28,12 +28,16 @@ import com.jeff_media.jefflib.data.Hologram;
 import com.jeff_media.jefflib.data.OfflinePlayerPersistentDataContainer;
 import com.jeff_media.jefflib.data.SerializedEntity;
 import com.jeff_media.jefflib.data.tuples.Pair;
+import com.jeff_media.jefflib.exceptions.NMSNotSupportedException;
 import com.jeff_media.jefflib.exceptions.UseApiNowException;
 import com.jeff_media.jefflib.internal.annotations.Internal;
 import com.jeff_media.jefflib.internal.annotations.Tested;
 import com.mojang.authlib.GameProfile;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
@@ -106,6 +110,20 @@ public interface AbstractNMSHandler {
     @Tested("1.19.4")
     int getItemStackSizeInBytes(ItemStack itemStack) throws IOException;
 
+    /**
+     * Gets a value that is never smaller than {@link #getItemStackSizeInBytes(ItemStack)}, without calculating the exact length of every String
+     */
+    default int getItemStackSizeUpperBound(ItemStack itemStack) throws IOException {
+        return getItemStackSizeInBytes(itemStack);
+    }
+
+    /**
+     * Gets the exact amount of bytes the ItemStack takes up when sent to clients
+     */
+    default int getItemStackNetworkSize(ItemStack itemStack) {
+        throw new NMSNotSupportedException("Getting the network size of ItemStacks is not supported on this version");
+    }
+
     @Tested("1.19.4")
     String getDefaultWorldName();
 
@@ -168,6 +186,53 @@ public interface AbstractNMSHandler {
 
     void deserializePdc(String serializedPdc, PersistentDataContainer target) throws Exception;
 
+    /**
+     * Writes the PDC as uncompressed binary NBT
+     */
+    default void writePdc(PersistentDataContainer pdc, DataOutput out) throws IOException {
+        throw new NMSNotSupportedException("Binary PDC serialization is not supported on this version");
+    }
+
+    /**
+     * Reads binary NBT written by {@link #writePdc(PersistentDataContainer, DataOutput)} into the target PDC
+     */
+    default void readPdc(DataInput in, PersistentDataContainer target) throws IOException {
+        throw new NMSNotSupportedException("Binary PDC serialization is not supported on this version");
+    }
+
+    /**
+     * Returned by {@link #getPdcTagId(PersistentDataContainer, NamespacedKey)} for PDCs that aren't backed by NBT, e.g. custom implementations
+     */
+    int PDC_NOT_SUPPORTED = -2;
+
+    /**
+     * Gets the NBT tag ID of a key in the PDC, -1 if the key doesn't exist, or {@link #PDC_NOT_SUPPORTED} if the PDC isn't backed by NBT
+     */
+    default int getPdcTagId(PersistentDataContainer pdc, NamespacedKey key) {
+        throw new UseApiNowException();
+    }
+
+    /**
+     * Gets the NBT tag IDs of all keys in the PDC, or null if the PDC isn't backed by NBT
+     */
+    default Map<NamespacedKey, Integer> getPdcTagIds(PersistentDataContainer pdc) {
+        throw new UseApiNowException();
+    }
+
+    /**
+     * Writes the ItemStack as uncompressed binary NBT. Air is written as an empty compound.
+     */
+    default void writeItemStack(ItemStack itemStack, DataOutput out) throws IOException {
+        throw new NMSNotSupportedException("Binary ItemStack serialization is not supported on this version");
+    }
+
+    /**
+     * Reads binary NBT written by {@link #writeItemStack(ItemStack, DataOutput)}, upgrading it from the given data version if needed
+     */
+    default ItemStack readItemStack(DataInput in, int dataVersion) throws IOException {
+        throw new NMSNotSupportedException("Binary ItemStack serialization is not supported on this version");
+    }
+
     @Tested("1.19.4")
     void respawnPlayer(Player player);
 
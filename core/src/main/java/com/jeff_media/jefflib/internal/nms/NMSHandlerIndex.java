@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.jeff_media.jefflib.internal.nms;
+
+import com.jeff_media.jefflib.JeffLib;
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Reads the internals name to NMSHandler index that the dist module writes at build time, so that
+ * {@link JeffLib#enableNMS()} doesn't have to scan the jar for a matching handler. The index is generated from the
+ * NMSHandler classes inside the shaded jefflib-nms-* jars, so it lists exactly the bundled handlers.
+ */
+@Internal
+@UtilityClass
+public class NMSHandlerIndex {
+
+    private static final String RESOURCE = "/jefflib-nms-handlers.properties";
+    private static final Properties HANDLERS = load();
+
+    /**
+     * Gets whether the index was found. It's missing when running from the core module alone, e.g. in tests.
+     */
+    public static boolean isAvailable() {
+        return HANDLERS != null;
+    }
+
+    /**
+     * Gets the fully qualified class name of the NMSHandler for the given internals name, or null if there's none
+     *
+     * @param packageName   JeffLib's (possibly relocated) base package
+     * @param internalsName Internals name, e.g. "v1_21_3"
+     */
+    @Nullable
+    public static String getHandlerClassName(@NotNull final String packageName, @NotNull final String internalsName) {
+        if (HANDLERS == null) return null;
+        final String relativeName = HANDLERS.getProperty(internalsName);
+        return relativeName == null ? null : packageName + "." + relativeName;
+    }
+
+    @Nullable
+    private static Properties load() {
+        try (final InputStream stream = NMSHandlerIndex.class.getResourceAsStream(RESOURCE)) {
+            if (stream == null) return null;
+            final Properties properties = new Properties();
+            try (final Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            return properties;
+        } catch (final Exception ignored) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.text;
+
+import com.jeff_media.jefflib.data.HexColor;
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import lombok.experimental.UtilityClass;
+import org.bukkit.ChatColor;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Translates &amp; color codes, &amp;#rrggbb and &lt;#rrggbb> hex colors, &lt;#rrggbb>text&lt;#/rrggbb> gradients and &amp;&amp; escapes
+ * in a single pass into one StringBuilder.
+ * <p>
+ * Behaves like the former regex based implementation of {@link com.jeff_media.jefflib.TextUtils#color(String)}:
+ * <ul>
+ *     <li>A gradient ends at the first end tag in the same line. The end tag's color continues after the gradient, and can itself start the next gradient.</li>
+ *     <li>Formatting codes inside a gradient apply to all following characters of that gradient until &amp;r.</li>
+ *     <li>Trailing &amp;x&amp;r&amp;r&amp;g&amp;g&amp;b&amp;b codes are dropped unless the text contains line breaks.</li>
+ * </ul>
+ * Unlike before, &amp;&amp; inside a gradient turns into a colored &amp;, and gradients may contain $ and \.
+ */
+@Internal
+@UtilityClass
+public class ColorCodeParser {
+
+    private static final char COLOR_CHAR = ChatColor.COLOR_CHAR;
+    private static final String CODES = "0123456789AaBbCcDdEeFfKkLlMmNnOoRrXx";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final int HEX_CODE_LENGTH = 14;
+    private static final int TAG_LENGTH = 9;
+    private static final int END_TAG_LENGTH = 10;
+
+    /**
+     * Translates all color codes, hex colors and gradients of the given text
+     *
+     * @param text Text to translate
+     * @return Translated text
+     */
+    @NotNull
+    public static String color(@NotNull final String text) {
+        final int length = getLengthWithoutTrailingHexCodes(text);
+        final StringBuilder builder = new StringBuilder(length + (length >> 1) + 16);
+        int i = 0;
+        while (i < length) {
+            final char c = text.charAt(i);
+            if (c == '&' && i + 1 < length) {
+                final char next = text.charAt(i + 1);
+                if (next == '&') {
+                    builder.append('&');
+                    i += 2;
+                    continue;
+                }
+                if (next == '#' && isHex(text, i + 2, length)) {
+                    appendHexCode(builder, text, i + 2);
+                    i += 8;
+                    continue;
+                }
+                if (CODES.indexOf(next) != -1) {
+                    builder.append(COLOR_CHAR).append(Character.toLowerCase(next));
+                    i += 2;
+                    continue;
+                }
+            } else if (c == '<') {
+                if (isTag(text, i, length)) {
+                    i = appendColorAndGradients(builder, text, parseHex(text, i + 2), i + TAG_LENGTH, length);
+                    continue;
+                }
+                if (isEndTag(text, i, length)) {
+                    // An end tag without a gradient stays as it is, but still starts its color
+                    builder.append(text, i, i + END_TAG_LENGTH);
+                    i = appendColorAndGradients(builder, text, parseHex(text, i + 3), i + END_TAG_LENGTH, length);
+                    continue;
+                }
+            }
+            builder.append(c);
+            i++;
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Checks whether the given char appears inside any gradient of the given text
+     *
+     * @param text      Text to check
+     * @param character Character to look for
+     * @return true if the given char is part of a gradient's text, otherwise false
+     */
+    public static boolean isInsideGradient(@NotNull final String text, final char character) {
+        final int length = text.length();
+        int i = 0;
+        while (i < length) {
+            final boolean tag = isTag(text, i, length);
+            if (!tag && !isEndTag(text, i, length)) {
+                i++;
+                continue;
+            }
+            int start = i + (tag ? TAG_LENGTH : END_TAG_LENGTH);
+            int end;
+            while ((end = findEndTag(text, start, length)) != -1) {
+                for (int j = start; j < end; j++) {
+                    if (text.charAt(j) == character) return true;
+                }
+                start = end + END_TAG_LENGTH;
+            }
+            i = start;
+        }
+        return false;
+    }
+
+    /**
+     * Appends the given color, or the gradients starting with it. Every gradient's end color starts the next gradient, if there is one.
+     *
+     * @return Index after the last appended gradient
+     */
+    private static int appendColorAndGradients(@NotNull final StringBuilder builder, @NotNull final String text, HexColor color, int start, final int length) {
+        int end;
+        while ((end = findEndTag(text, start, length)) != -1) {
+            final HexColor endColor = parseHex(text, end + 3);
+            appendGradient(builder, text, start, end, color, endColor);
+            color = endColor;
+            start = end + END_TAG_LENGTH;
+        }
+        appendHexCode(builder, color);
+        return start;
+    }
+
+    /**
+     * Same as {@link HexColor#applyGradient(String, HexColor, HexColor)}, without creating intermediate Strings
+     */
+    private static void appendGradient(@NotNull final StringBuilder builder, @NotNull final String text, final int from, final int to, final HexColor start, final HexColor end) {
+        final int length = to - from;
+        final StringBuilder format = new StringBuilder();
+        String translatedFormat = "";
+        for (int i = from; i < to; i++) {
+            final char c = text.charAt(i);
+            if (c == '&' && i + 1 < to && text.charAt(i + 1) == '&') {
+                appendHexCode(builder, HexColor.getHexAtPositionInGradient(start, end, length, i - from));
+                builder.append(translatedFormat).append('&');
+                i++;
+                continue;
+            }
+            if (format.length() % 2 == 1) {
+                if (c == 'r' || c == 'R') {
+                    builder.append(COLOR_CHAR).append('r');
+                    format.setLength(0);
+                } else {
+                    format.append(c);
+                }
+                translatedFormat = ChatColor.translateAlternateColorCodes('&', format.toString());
+                continue;
+            }
+            if (c == '&' || c == COLOR_CHAR) {
+                format.append('&');
+                continue;
+            }
+            appendHexCode(builder, HexColor.getHexAtPositionInGradient(start, end, length, i - from));
+            builder.append(translatedFormat);
+            if (builder.charAt(builder.length() - 1) == '&' && CODES.indexOf(c) != -1) {
+                // A format ending with an untranslated & still turns the next char into a code, e.g. "§&l"
+                builder.setCharAt(builder.length() - 1, COLOR_CHAR);
+                builder.append(Character.toLowerCase(c));
+            } else {
+                builder.append(c);
+            }
+        }
+    }
+
+    /**
+     * Finds the first gradient end tag in the same line
+     *
+     * @return Index of the end tag, or -1 if there is none
+     */
+    private static int findEndTag(@NotNull final String text, final int from, final int length) {
+        for (int i = from; i < length; i++) {
+            final char c = text.charAt(i);
+            if (isLineTerminator(c)) return -1;
+            if (c == '<' && isEndTag(text, i, length)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Trailing &amp;x&amp;r&amp;r&amp;g&amp;g&amp;b&amp;b codes are dropped, as long as the text has no line breaks
+     */
+    private static int getLengthWithoutTrailingHexCodes(@NotNull final String text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            if (isLineTerminator(text.charAt(i))) return length;
+        }
+        while (length >= HEX_CODE_LENGTH && isHexCode(text, length - HEX_CODE_LENGTH) && !isEscaped(text, length - HEX_CODE_LENGTH)) {
+            length -= HEX_CODE_LENGTH;
+        }
+        return length;
+    }
+
+    private static boolean isHexCode(@NotNull final String text, final int index) {
+        if (text.charAt(index) != '&' || text.charAt(index + 1) != 'x') return false;
+        for (int i = index + 2; i < index + HEX_CODE_LENGTH; i += 2) {
+            if (text.charAt(i) != '&' || !isAsciiLetterOrDigit(text.charAt(i + 1))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the &amp; at the given index is the second half of an &amp;&amp; escape
+     */
+    private static boolean isEscaped(@NotNull final String text, final int index) {
+        int ampersands = 0;
+        for (int i = index - 1; i >= 0 && text.charAt(i) == '&'; i--) {
+            ampersands++;
+        }
+        return ampersands % 2 == 1;
+    }
+
+    private static boolean isTag(@NotNull final String text, final int index, final int length) {
+        return index + TAG_LENGTH <= length
+                && text.charAt(index) == '<'
+                && text.charAt(index + 1) == '#'
+                && text.charAt(index + 8) == '>'
+                && isHex(text, index + 2, length);
+    }
+
+    private static boolean isEndTag(@NotNull final String text, final int index, final int length) {
+        return index + END_TAG_LENGTH <= length
+                && text.charAt(index) == '<'
+                && text.charAt(index + 1) == '#'
+                && text.charAt(index + 2) == '/'
+                && text.charAt(index + 9) == '>'
+                && isHex(text, index + 3, length);
+    }
+
+    private static boolean isHex(@NotNull final String text, final int from, final int length) {
+        if (from + 6 > length) return false;
+        for (int i = from; i < from + 6; i++) {
+            if (!isHexDigit(text.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static HexColor parseHex(@NotNull final String text, final int from) {
+        return new HexColor(parseHexByte(text, from), parseHexByte(text, from + 2), parseHexByte(text, from + 4));
+    }
+
+    private static int parseHexByte(@NotNull final String text, final int from) {
+        return Character.digit(text.charAt(from), 16) << 4 | Character.digit(text.charAt(from + 1), 16);
+    }
+
+    private static void appendHexCode(@NotNull final StringBuilder builder, @NotNull final String text, final int from) {
+        builder.append(COLOR_CHAR).append('x');
+        for (int i = from; i < from + 6; i++) {
+            builder.append(COLOR_CHAR).append(Character.toLowerCase(text.charAt(i)));
+        }
+    }
+
+    private static void appendHexCode(@NotNull final StringBuilder builder, @NotNull final HexColor color) {
+        builder.append(COLOR_CHAR).append('x');
+        appendHexByte(builder, color.getRed());
+        appendHexByte(builder, color.getGreen());
+        appendHexByte(builder, color.getBlue());
+    }
+
+    private static void appendHexByte(@NotNull final StringBuilder builder, final int value) {
+        builder.append(COLOR_CHAR).append(HEX_DIGITS[value >> 4]).append(COLOR_CHAR).append(HEX_DIGITS[value & 0xF]);
+    }
+
+    private static boolean isHexDigit(final char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static boolean isAsciiLetterOrDigit(final char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isLineTerminator(final char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+}
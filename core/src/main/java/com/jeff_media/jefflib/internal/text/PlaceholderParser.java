@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.internal.text;
+
+import com.jeff_media.jefflib.internal.annotations.Internal;
+import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Finds PlaceholderAPI placeholders the same way PlaceholderAPI does: a placeholder starts with %, its identifier ends at the
+ * first _ and the placeholder ends at the next %. A space ends the placeholder only while still inside the identifier, so
+ * parameters may contain spaces, e.g. {@code %math_1 + 2%}.
+ */
+@Internal
+@UtilityClass
+public class PlaceholderParser {
+
+    /**
+     * Gets the end of the placeholder starting at the given index. Pairs of % that PlaceholderAPI consumes without replacing them,
+     * e.g. {@code %%}, count as placeholders too, so that their closing % doesn't start another placeholder.
+     *
+     * @param text  Text to search
+     * @param start Index of the opening %
+     * @return Index after the closing %, or -1 if no placeholder starts at the given index
+     */
+    public static int findPlaceholderEnd(@NotNull final String text, final int start) {
+        if (text.charAt(start) != '%') return -1;
+        boolean identified = false;
+        for (int i = start + 1; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c == '%') return i + 1;
+            if (c == '_') {
+                identified = true;
+            } else if (c == ' ' && !identified) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+}
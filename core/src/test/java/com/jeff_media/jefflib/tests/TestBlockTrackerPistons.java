@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.tests;
+
+import com.jeff_media.jefflib.BlockTracker;
+import com.jeff_media.jefflib.UnitTest;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.PistonMoveReaction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestBlockTrackerPistons extends UnitTest {
+
+    @Test
+    public void testMixedPistonBlocks() {
+        final World world = getServer().addSimpleWorld("world");
+        final Block pushed = withReaction(world.getBlockAt(1, 64, 1), PistonMoveReaction.MOVE);
+        final Block broken = withReaction(world.getBlockAt(5, 64, 1), PistonMoveReaction.BREAK);
+        final Block untracked = withReaction(world.getBlockAt(8, 64, 1), PistonMoveReaction.MOVE);
+        BlockTracker.setPlayerPlacedBlock(pushed, true);
+        BlockTracker.setPlayerPlacedBlock(broken, true);
+
+        BlockTracker.moveBlocks(Arrays.asList(pushed, broken, untracked), BlockFace.EAST);
+
+        Assertions.assertFalse(BlockTracker.isPlayerPlacedBlock(world.getBlockAt(1, 64, 1)));
+        Assertions.assertTrue(BlockTracker.isPlayerPlacedBlock(world.getBlockAt(2, 64, 1)));
+        Assertions.assertFalse(BlockTracker.isPlayerPlacedBlock(world.getBlockAt(5, 64, 1)));
+        Assertions.assertFalse(BlockTracker.isPlayerPlacedBlock(world.getBlockAt(6, 64, 1)));
+        Assertions.assertFalse(BlockTracker.isPlayerPlacedBlock(world.getBlockAt(9, 64, 1)));
+    }
+
+    /**
+     * MockBukkit doesn't know piston move reactions, so the reaction is faked
+     */
+    private static Block withReaction(final Block block, final PistonMoveReaction reaction) {
+        return (Block) Proxy.newProxyInstance(Block.class.getClassLoader(), new Class<?>[] {Block.class}, (proxy, method, args) -> {
+            if (method.getName().equals("getPistonMoveReaction")) return reaction;
+            return method.invoke(block, args);
+        });
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.tests;
+
+import com.jeff_media.jefflib.UnitTest;
+import com.jeff_media.jefflib.data.ChunkDataCodec;
+import com.jeff_media.jefflib.data.ChunkDataStore;
+import java.lang.reflect.Proxy;
+import org.bukkit.Chunk;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestChunkDataStore extends UnitTest {
+
+    @Test
+    public void testUnloadedChunkWhileRegistered() {
+        final World world = withChunkLoadEvent(getServer().addSimpleWorld("world"));
+        final ChunkDataStore<String> store = new ChunkDataStore<>(new NamespacedKey(getPlugin(), "test"), ChunkDataCodec.STRING);
+        store.register();
+
+        Assertions.assertNull(store.get(world, 100, 64, 100));
+        store.set(world, 200, 64, 200, "value");
+
+        Assertions.assertEquals("value", store.get(world, 200, 64, 200));
+        Assertions.assertEquals(2, store.getLoadedChunkCount());
+        store.unregister();
+    }
+
+    /**
+     * MockBukkit doesn't call ChunkLoadEvent when a chunk is loaded, so the event is called manually
+     */
+    private World withChunkLoadEvent(final World world) {
+        return (World) Proxy.newProxyInstance(World.class.getClassLoader(), new Class<?>[] {World.class}, (proxy, method, args) -> {
+            final Object result = method.invoke(world, args);
+            if (method.getName().equals("getChunkAt") && result instanceof Chunk) {
+                getServer().getPluginManager().callEvent(new ChunkLoadEvent((Chunk) result, false));
+            }
+            return result;
+        });
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.tests;
+
+import com.jeff_media.jefflib.data.pdc.CompactDataTypes;
+import com.jeff_media.jefflib.data.pdc.EnumSetDataType;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.bukkit.util.BlockVector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Round-trips and compares the sizes with the usual String encodings
+ */
+public class TestCompactDataTypes {
+
+    @Test
+    public void testUUID() {
+        UUID uuid = UUID.randomUUID();
+        byte[] bytes = CompactDataTypes.UUID.toPrimitive(uuid, null);
+        Assertions.assertEquals(16, bytes.length);
+        Assertions.assertTrue(bytes.length < uuid.toString().getBytes(StandardCharsets.UTF_8).length);
+        Assertions.assertEquals(uuid, CompactDataTypes.UUID.fromPrimitive(bytes, null));
+    }
+
+    @Test
+    public void testBlockPosition() {
+        BlockVector position = new BlockVector(-1234567, -64, 7654321);
+        long packed = CompactDataTypes.BLOCK_POSITION.toPrimitive(position, null);
+        Assertions.assertEquals(position, CompactDataTypes.BLOCK_POSITION.fromPrimitive(packed, null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CompactDataTypes.BLOCK_POSITION.toPrimitive(new BlockVector(0, 4096, 0), null));
+    }
+
+    @Test
+    public void testEnumSet() {
+        EnumSetDataType<TimeUnit> type = CompactDataTypes.enumSet(TimeUnit.class);
+        EnumSet<TimeUnit> set = EnumSet.of(TimeUnit.SECONDS, TimeUnit.DAYS);
+        byte[] bytes = type.toPrimitive(set, null);
+        Assertions.assertEquals(1, bytes.length);
+        Assertions.assertEquals(set, type.fromPrimitive(bytes, null));
+        Assertions.assertEquals(EnumSet.noneOf(TimeUnit.class), type.fromPrimitive(type.toPrimitive(EnumSet.noneOf(TimeUnit.class), null), null));
+    }
+
+    @Test
+    public void testVarIntLists() {
+        List<Integer> ints = Arrays.asList(0, 1, -1, 63, -64, 1000, Integer.MAX_VALUE, Integer.MIN_VALUE);
+        byte[] bytes = CompactDataTypes.INT_LIST.toPrimitive(ints, null);
+        Assertions.assertEquals(ints, CompactDataTypes.INT_LIST.fromPrimitive(bytes, null));
+        Assertions.assertTrue(bytes.length < ints.toString().length());
+
+        List<Long> longs = Arrays.asList(0L, -5L, Long.MAX_VALUE, Long.MIN_VALUE);
+        Assertions.assertEquals(longs, CompactDataTypes.LONG_LIST.fromPrimitive(CompactDataTypes.LONG_LIST.toPrimitive(longs, null), null));
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.tests;
+
+import com.jeff_media.jefflib.internal.nbt.NbtStreams;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestNbtStreams {
+
+    private static byte[] compound(String key, String value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(NbtStreams.TAG_STRING);
+        out.writeUTF(key);
+        out.writeUTF(value);
+        out.writeByte(NbtStreams.TAG_END);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] playerFile(byte[] bukkitValues) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(NbtStreams.TAG_COMPOUND);
+        out.writeUTF("");
+        out.writeByte(NbtStreams.TAG_LIST);
+        out.writeUTF("Inventory");
+        out.writeByte(NbtStreams.TAG_COMPOUND);
+        out.writeInt(2);
+        out.write(compound("id", "minecraft:stone"));
+        out.write(compound("id", "minecraft:dirt"));
+        out.writeByte(NbtStreams.TAG_LONG_ARRAY);
+        out.writeUTF("Longs");
+        out.writeInt(3);
+        out.writeLong(1);
+        out.writeLong(2);
+        out.writeLong(3);
+        if (bukkitValues != null) {
+            out.writeByte(NbtStreams.TAG_COMPOUND);
+            out.writeUTF("BukkitValues");
+            out.write(bukkitValues);
+        }
+        out.writeByte(NbtStreams.TAG_FLOAT);
+        out.writeUTF("Health");
+        out.writeFloat(20);
+        out.writeByte(NbtStreams.TAG_END);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] replace(byte[] nbt, byte[] payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        NbtStreams.replaceChildCompound(new DataInputStream(new ByteArrayInputStream(nbt)), new DataOutputStream(bytes), "BukkitValues", payload);
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void testReadChildCompound() throws IOException {
+        byte[] values = compound("plugin:key", "value");
+        Assertions.assertArrayEquals(values, NbtStreams.readChildCompound(new DataInputStream(new ByteArrayInputStream(playerFile(values))), "BukkitValues"));
+        Assertions.assertNull(NbtStreams.readChildCompound(new DataInputStream(new ByteArrayInputStream(playerFile(null))), "BukkitValues"));
+    }
+
+    @Test
+    public void testReplaceChildCompound() throws IOException {
+        byte[] oldValues = compound("plugin:key", "old");
+        byte[] newValues = compound("plugin:key", "new value");
+        // Replacing keeps the position of the compound and all other tags
+        Assertions.assertArrayEquals(playerFile(newValues), replace(playerFile(oldValues), newValues));
+        Assertions.assertArrayEquals(playerFile(null), replace(playerFile(oldValues), null));
+        // Missing compounds are appended at the end
+        byte[] appended = replace(playerFile(null), newValues);
+        Assertions.assertArrayEquals(newValues, NbtStreams.readChildCompound(new DataInputStream(new ByteArrayInputStream(appended)), "BukkitValues"));
+    }
+}
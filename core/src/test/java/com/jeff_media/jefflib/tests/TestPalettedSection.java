@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.tests;
+
+import com.jeff_media.jefflib.data.ChunkDataCodec;
+import com.jeff_media.jefflib.internal.chunkdata.PalettedSection;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestPalettedSection {
+
+    @Test
+    public void testSingleValueUsesOneBit() {
+        PalettedSection<Boolean> section = new PalettedSection<>();
+        Assertions.assertTrue(section.isEmpty());
+        Assertions.assertTrue(section.set(PalettedSection.index(1, 2, 3), true));
+        Assertions.assertFalse(section.set(PalettedSection.index(1, 2, 3), true));
+        Assertions.assertEquals(1, section.getBitsPerBlock());
+        Assertions.assertEquals(Boolean.TRUE, section.get(PalettedSection.index(1, 2, 3)));
+        Assertions.assertNull(section.get(PalettedSection.index(3, 2, 1)));
+        Assertions.assertTrue(section.set(PalettedSection.index(1, 2, 3), null));
+        Assertions.assertTrue(section.isEmpty());
+    }
+
+    @Test
+    public void testPaletteGrowsAndRoundTrips() throws IOException {
+        PalettedSection<Integer> section = new PalettedSection<>();
+        for (int i = 0; i < PalettedSection.SIZE; i++) {
+            section.set(i, i % 300);
+        }
+        Assertions.assertEquals(16, section.getBitsPerBlock());
+        Assertions.assertEquals(PalettedSection.SIZE, section.count());
+
+        for (int i = 0; i < PalettedSection.SIZE; i++) {
+            section.set(i, i % 3 == 0 ? null : i % 5);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        section.write(new DataOutputStream(bytes), ChunkDataCodec.INTEGER);
+        PalettedSection<Integer> read = PalettedSection.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), ChunkDataCodec.INTEGER);
+
+        // Only the 5 values still in use are written, so 4 bits per block are enough
+        Assertions.assertEquals(4, read.getBitsPerBlock());
+        Assertions.assertEquals(section.count(), read.count());
+        for (int i = 0; i < PalettedSection.SIZE; i++) {
+            Assertions.assertEquals(section.get(i), read.get(i));
+        }
+    }
+}
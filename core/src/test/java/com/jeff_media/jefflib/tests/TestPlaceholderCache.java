@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.tests;
+
+import com.jeff_media.jefflib.PlaceholderCache;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import org.bukkit.OfflinePlayer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Uses {@link PlaceholderCache#create(PlaceholderCache.Options, BiFunction)} with a custom resolver, so no server is needed
+ */
+public class TestPlaceholderCache {
+
+    private final AtomicInteger resolved = new AtomicInteger();
+    private final BiFunction<OfflinePlayer, String, String> resolver = (player, placeholder) -> placeholder + "#" + resolved.incrementAndGet();
+
+    @Test
+    public void testTtl() {
+        final PlaceholderCache cache = PlaceholderCache.create(new PlaceholderCache.Options()
+                .defaultTtl(1, TimeUnit.HOURS)
+                .ttl("%short_lived%", 1, TimeUnit.NANOSECONDS)
+                .ttl("%not_cached%", 0, TimeUnit.SECONDS), resolver);
+        final OfflinePlayer player = player(true);
+
+        Assertions.assertEquals("%player_name%#1", cache.get(player, "%player_name%"));
+        Assertions.assertEquals("%player_name%#1", cache.get(player, "%player_name%"));
+        Assertions.assertEquals("%short_lived%#2", cache.get(player, "%short_lived%"));
+        Assertions.assertEquals("%short_lived%#3", cache.get(player, "%short_lived%"));
+        Assertions.assertEquals("%not_cached%#4", cache.get(player, "%not_cached%"));
+        Assertions.assertEquals("%not_cached%#5", cache.get(player, "%not_cached%"));
+
+        final PlaceholderCache.Statistics statistics = cache.getStatistics();
+        Assertions.assertEquals(1, statistics.getHits());
+        Assertions.assertEquals(3, statistics.getMisses());
+        Assertions.assertEquals(2, statistics.getRequests().get("%not_cached%"));
+    }
+
+    @Test
+    public void testRefreshAhead() throws InterruptedException {
+        final List<Runnable> scheduled = new ArrayList<>();
+        final PlaceholderCache cache = PlaceholderCache.create(new PlaceholderCache.Options()
+                .defaultTtl(1, TimeUnit.HOURS)
+                .refreshAhead(0.9999999)
+                .executor(scheduled::add), resolver);
+        final OfflinePlayer player = player(true);
+
+        Assertions.assertEquals("%player_name%#1", cache.get(player, "%player_name%"));
+        Thread.sleep(5);
+        Assertions.assertEquals("%player_name%#1", cache.get(player, "%player_name%"));
+        Assertions.assertEquals("%player_name%#1", cache.get(player, "%player_name%"));
+        Assertions.assertEquals(1, scheduled.size());
+
+        scheduled.get(0).run();
+        Assertions.assertEquals("%player_name%#2", cache.get(player, "%player_name%"));
+        Assertions.assertEquals(1, cache.getStatistics().getRefreshes());
+        Assertions.assertEquals(1, cache.getStatistics().getMisses());
+    }
+
+    @Test
+    public void testInvalidation() {
+        final PlaceholderCache cache = PlaceholderCache.create(new PlaceholderCache.Options().defaultTtl(1, TimeUnit.HOURS), resolver);
+        final OfflinePlayer player = player(true);
+        final OfflinePlayer other = player(true);
+        cache.get(player, "%player_name%");
+        cache.get(player, "%player_level%");
+        cache.get(other, "%player_name%");
+        Assertions.assertEquals(3, cache.getStatistics().getCachedValues());
+
+        cache.invalidate(player.getUniqueId(), "%player_name%");
+        Assertions.assertEquals(2, cache.getStatistics().getCachedValues());
+        Assertions.assertEquals("%player_name%#4", cache.get(player, "%player_name%"));
+
+        cache.invalidate(player.getUniqueId());
+        Assertions.assertEquals(1, cache.getStatistics().getCachedValues());
+
+        cache.invalidateAll();
+        Assertions.assertEquals(0, cache.getStatistics().getCachedValues());
+    }
+
+    @Test
+    public void testBounds() {
+        final PlaceholderCache cache = PlaceholderCache.create(new PlaceholderCache.Options()
+                .defaultTtl(1, TimeUnit.HOURS)
+                .maxValuesPerPlayer(2), resolver);
+        final OfflinePlayer player = player(true);
+        cache.get(player, "%player_name%");
+        cache.get(player, "%player_level%");
+        cache.get(player, "%player_health%");
+        Assertions.assertEquals(2, cache.getStatistics().getCachedValues());
+
+        final OfflinePlayer offline = player(false);
+        Assertions.assertEquals("%player_name%#4", cache.get(offline, "%player_name%"));
+        Assertions.assertEquals("%player_name%#5", cache.get(offline, "%player_name%"));
+        Assertions.assertEquals(2, cache.getStatistics().getCachedValues());
+    }
+
+    @Test
+    public void testReplace() {
+        final PlaceholderCache cache = PlaceholderCache.create(new PlaceholderCache.Options().defaultTtl(1, TimeUnit.HOURS), (player, placeholder) -> "[" + placeholder.substring(1, placeholder.length() - 1) + "]");
+        final OfflinePlayer player = player(true);
+
+        Assertions.assertEquals("no placeholders", cache.replace("no placeholders", player));
+        Assertions.assertEquals("Hello [player_name]!", cache.replace("Hello %player_name%!", player));
+        Assertions.assertEquals("100% [player_name] [nothing] [a_b][c_d]", cache.replace("100% %player_name% %nothing% %a_b%%c_d%", player));
+        Assertions.assertEquals("[_invalid] [player_name] 50%", cache.replace("%_invalid% %player_name% 50%", player));
+        Assertions.assertEquals("Result: [math_1 + 2], 100 % sure", cache.replace("Result: %math_1 + 2%, 100 % sure", player));
+    }
+
+    private static OfflinePlayer player(final boolean online) {
+        final UUID uuid = UUID.randomUUID();
+        return (OfflinePlayer) Proxy.newProxyInstance(OfflinePlayer.class.getClassLoader(), new Class<?>[] {OfflinePlayer.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getUniqueId":
+                    return uuid;
+                case "isOnline":
+                    return online;
+                case "hashCode":
+                    return uuid.hashCode();
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+}
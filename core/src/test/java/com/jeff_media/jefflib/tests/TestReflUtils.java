@@ -18,6 +18,12 @@
 package com.jeff_media.jefflib.tests;
 
 import com.jeff_media.jefflib.ReflUtils;
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -29,4 +35,85 @@ public class TestReflUtils {
         ReflUtils.getClass("java.util.List");
         Assertions.assertTrue(ReflUtils.isClassCached("java.util.List"));
     }
+
+    @Test
+    public void testNegativeCaching() {
+        final String missing = "com.jeff_media.jefflib.tests.DoesNotExistNegativeCaching";
+        final String missingMethod = "doesNotExistNegativeCaching";
+        Assertions.assertNull(ReflUtils.getClass(missing));
+        Assertions.assertNull(ReflUtils.getMethod(String.class, missingMethod));
+        final ReflUtils.LookupStatistics before = ReflUtils.getLookupStatistics();
+        Assertions.assertNull(ReflUtils.getClass(missing));
+        Assertions.assertNull(ReflUtils.getMethod(String.class, missingMethod));
+        final ReflUtils.LookupStatistics after = ReflUtils.getLookupStatistics();
+
+        Assertions.assertFalse(ReflUtils.isClassCached(missing));
+        Assertions.assertEquals(before.getClassMisses(), after.getClassMisses());
+        Assertions.assertEquals(before.getClassHits() + 1, after.getClassHits());
+        Assertions.assertEquals(before.getMethodHits() + 1, after.getMethodHits());
+        Assertions.assertEquals(before.getNegativeHits() + 2, after.getNegativeHits());
+    }
+
+    @Test
+    public void testClearNegativeCache() {
+        final String missing = "com.jeff_media.jefflib.tests.DoesNotExistClearNegativeCache";
+        Assertions.assertNull(ReflUtils.getClass(missing));
+        ReflUtils.clearNegativeCache();
+        final ReflUtils.LookupStatistics before = ReflUtils.getLookupStatistics();
+        Assertions.assertNull(ReflUtils.getClass(missing));
+        final ReflUtils.LookupStatistics after = ReflUtils.getLookupStatistics();
+
+        Assertions.assertEquals(before.getClassMisses() + 1, after.getClassMisses());
+        Assertions.assertEquals(before.getClassHits(), after.getClassHits());
+    }
+
+    @Test
+    public void testMethodAccessors() throws Throwable {
+        final MethodHandle length = ReflUtils.getMethodHandle(String.class, "length");
+        Assertions.assertNotNull(length);
+        Assertions.assertEquals(3, (int) length.invokeExact("abc"));
+        Assertions.assertSame(length, ReflUtils.getMethodHandle(String.class, "length"));
+
+        final Function<String, Integer> lengthFunction = ReflUtils.getMethodFunction(String.class, "length");
+        Assertions.assertNotNull(lengthFunction);
+        Assertions.assertEquals(5, lengthFunction.apply("hello"));
+
+        final BiConsumer<List<String>, Object> add = ReflUtils.getMethodBiConsumer(ArrayList.class, "add", Object.class);
+        final List<String> list = new ArrayList<>();
+        Assertions.assertNotNull(add);
+        add.accept(list, "a");
+        Assertions.assertEquals(1, list.size());
+
+        Assertions.assertNull(ReflUtils.getMethodHandle(String.class, "doesNotExist"));
+        Assertions.assertNull(ReflUtils.getMethodFunction(String.class, "doesNotExist"));
+    }
+
+    @Test
+    public void testFieldAndConstructorAccessors() {
+        final Supplier<Counter> constructor = ReflUtils.getConstructorSupplier(Counter.class);
+        Assertions.assertNotNull(constructor);
+        final Counter counter = constructor.get();
+
+        final Function<Counter, Integer> getter = ReflUtils.getFieldGetter(Counter.class, "count");
+        final BiConsumer<Counter, Integer> setter = ReflUtils.getFieldSetter(Counter.class, "count");
+        Assertions.assertNotNull(getter);
+        Assertions.assertNotNull(setter);
+        setter.accept(counter, 42);
+        Assertions.assertEquals(42, getter.apply(counter));
+
+        final Function<Integer, Counter> withCount = ReflUtils.getConstructorFunction(Counter.class, int.class);
+        Assertions.assertNotNull(withCount);
+        Assertions.assertEquals(7, getter.apply(withCount.apply(7)));
+    }
+
+    private static final class Counter {
+        private int count;
+
+        private Counter() {
+        }
+
+        private Counter(final int count) {
+            this.count = count;
+        }
+    }
 }
@@ -17,7 +17,11 @@
 
 package com.jeff_media.jefflib.tests;
 
+import com.jeff_media.jefflib.TextTemplate;
 import com.jeff_media.jefflib.TextUtils;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -34,4 +38,50 @@ public class TestTextUtils {
         String placeholder = "My {property} is {value}.";
         Assertions.assertEquals(expected, TextUtils.replaceInString(placeholder, "{property}", "name", "{value}", "Jeff"));
     }
+
+    @Test
+    public void testTemplate() {
+        final TextTemplate template = TextTemplate.compile("&a{name} &7is <#123456>{age}");
+        final Map<String, String> variables = new HashMap<>();
+        variables.put("{name}", "&cJeff");
+        variables.put("{age}", "30");
+        Assertions.assertEquals("§a§cJeff §7is §x§1§2§3§4§5§630", template.render(null, variables));
+        Assertions.assertEquals(TextUtils.color("&a&cJeff &7is <#123456>30"), template.render(null, variables));
+
+        final TextTemplate gradient = TextTemplate.compile("<#ff0000>{name}<#/0000ff>");
+        variables.put("{name}", "Jeff");
+        Assertions.assertEquals(TextUtils.color("<#ff0000>Jeff<#/0000ff>"), gradient.render(null, variables));
+    }
+
+    @Test
+    public void testTemplatePlaceholders() {
+        final TextTemplate template = TextTemplate.compile("Result: %math_1 + 2%, %player_name% and 100% sure {name} { not } %");
+        Assertions.assertEquals(Arrays.asList("%math_1 + 2%", "%player_name%", "{name}"), template.getPlaceholders());
+    }
+
+    @Test
+    public void testColorGolden() {
+        assertColor("&aGreen &lbold&r reset", "§aGreen §lbold§r reset");
+        assertColor("&&a not a color", "&a not a color");
+        assertColor("&#12abEF hex", "§x§1§2§a§b§e§f hex");
+        assertColor("<#123456>Text", "§x§1§2§3§4§5§6Text");
+        assertColor("<#ff0000>Gradient<#/00ff00>", "§x§f§f§0§0§0§0G§x§d§b§2§4§0§0r§x§b§7§4§8§0§0a§x§9§3§6§c§0§0d§x§6§f§9§0§0§0i§x§4§b§b§4§0§0e§x§2§7§d§8§0§0n§x§0§0§f§f§0§0t§x§0§0§f§f§0§0");
+        assertColor("<#ff0000>ab<#/00ff00>cd<#/0000ff>", "§x§f§f§0§0§0§0a§x§0§0§f§f§0§0b§x§0§0§f§f§0§0c§x§0§0§0§0§f§fd§x§0§0§0§0§f§f");
+        assertColor("<#ff0000>&lBo&rld<#/0000ff>", "§x§b§7§0§0§4§8§lB§x§9§3§0§0§6§c§lo§r§x§2§7§0§0§d§8l§x§0§0§0§0§f§fd§x§0§0§0§0§f§f");
+        assertColor("Trailing&x&1&2&3&4&5&6", "Trailing");
+        assertColor("<#ff0000>no end", "§x§f§f§0§0§0§0no end");
+        assertColor("<#/00ff00>orphan end", "<#/00ff00>§x§0§0§f§f§0§0orphan end");
+        assertColor("Line\n<#ff0000>a<#/00ff00>&x&1&2&3&4&5&6", "Line\n§x§f§f§0§0§0§0a§x§0§0§f§f§0§0§x§1§2§3§4§5§6");
+        assertColor("&zunknown &", "&zunknown &");
+        assertColor("&&&a", "&§a");
+    }
+
+    @Test
+    public void testColorInsideGradient() {
+        Assertions.assertEquals("§x§f§f§0§0§0§0&§x§0§0§f§f§0§0$§x§0§0§f§f§0§0", TextUtils.color("<#ff0000>&&$<#/00ff00>"));
+    }
+
+    private static void assertColor(final String text, final String expected) {
+        Assertions.assertEquals(expected, TextUtils.color(text), text);
+    }
 }
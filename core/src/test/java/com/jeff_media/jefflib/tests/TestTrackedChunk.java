@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2023. JEFF Media GbR / mfnalex et al.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.jeff_media.jefflib.tests;
+
+import com.jeff_media.jefflib.internal.blocktracker.SectionBits;
+import com.jeff_media.jefflib.internal.blocktracker.TrackedChunk;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestTrackedChunk {
+
+    @Test
+    public void testSectionBits() {
+        long[] bits = new long[SectionBits.LONGS_PER_SECTION];
+        int index = SectionBits.index(15, -1, 3);
+        Assertions.assertEquals(15 << 8 | 3 << 4 | 15, index);
+        Assertions.assertTrue(SectionBits.set(bits, index, true));
+        Assertions.assertFalse(SectionBits.set(bits, index, true));
+        Assertions.assertTrue(SectionBits.get(bits, index));
+        Assertions.assertEquals(1, SectionBits.count(bits));
+        Assertions.assertTrue(SectionBits.set(bits, index, false));
+        Assertions.assertTrue(SectionBits.isEmpty(bits));
+    }
+
+    @Test
+    public void testTrackedChunk() {
+        TrackedChunk chunk = new TrackedChunk(-4, 24);
+        Assertions.assertFalse(chunk.isDirty());
+        Assertions.assertTrue(chunk.set(3, -64, 7, true));
+        Assertions.assertTrue(chunk.set(3, 319, 7, true));
+        Assertions.assertFalse(chunk.set(3, 320, 7, true));
+        Assertions.assertTrue(chunk.isDirty());
+        Assertions.assertTrue(chunk.get(3, -64, 7));
+        Assertions.assertTrue(chunk.get(3, 319, 7));
+        Assertions.assertFalse(chunk.get(4, 319, 7));
+        Assertions.assertNull(chunk.getSection(0));
+        chunk.set(3, -64, 7, false);
+        chunk.set(3, 319, 7, false);
+        Assertions.assertTrue(chunk.isEmpty());
+    }
+
+    @Test
+    public void testAreaQueries() {
+        TrackedChunk chunk = new TrackedChunk(-4, 24);
+        chunk.set(0, -64, 0, true);
+        chunk.set(5, 10, 7, true);
+        chunk.set(6, 10, 7, true);
+        chunk.set(15, 319, 15, true);
+        Assertions.assertEquals(4, chunk.count(0, -64, 0, 15, 319, 15));
+        Assertions.assertEquals(2, chunk.count(5, 10, 7, 6, 10, 7));
+        Assertions.assertEquals(1, chunk.count(6, 0, 0, 15, 20, 15));
+        Assertions.assertEquals(0, chunk.count(0, 11, 0, 15, 318, 15));
+
+        StringBuilder visited = new StringBuilder();
+        chunk.forEach(0, 0, 0, 15, 319, 15, 2, -1, (x, y, z) -> visited.append(x).append('/').append(y).append('/').append(z).append(';'));
+        Assertions.assertEquals("37/10/-9;38/10/-9;47/319/-1;", visited.toString());
+
+        chunk.setDirty(false);
+        Assertions.assertEquals(2, chunk.clear(0, 0, 0, 15, 15, 15));
+        Assertions.assertTrue(chunk.isDirty());
+        Assertions.assertEquals(2, chunk.count(0, -64, 0, 15, 319, 15));
+    }
+}
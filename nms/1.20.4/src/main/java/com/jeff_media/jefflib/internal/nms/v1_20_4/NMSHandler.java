@@ -47,8 +47,12 @@ import com.jeff_media.jefflib.internal.nms.v1_20_4.ai.HatchedMoveController;
 import com.jeff_media.jefflib.internal.nms.v1_20_4.ai.HatchedPathNavigation;
 import com.mojang.authlib.GameProfile;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Predicate;
@@ -58,6 +62,7 @@ import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.NbtAccounter;
 import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.Tag;
 import net.minecraft.nbt.TagParser;
 import net.minecraft.network.chat.Component;
 import net.minecraft.network.protocol.Packet;
@@ -388,6 +393,37 @@ public class NMSHandler implements AbstractNMSHandler {
         ((CraftPersistentDataContainer) target).putAll(tag);
     }
 
+    @Override
+    public void writePdc(PersistentDataContainer pdc, DataOutput out) throws IOException {
+        NbtIo.write(((CraftPersistentDataContainer) pdc).toTagCompound(), out);
+    }
+
+    @Override
+    public void readPdc(DataInput in, PersistentDataContainer target) throws IOException {
+        ((CraftPersistentDataContainer) target).putAll(NbtIo.read(in, NbtAccounter.unlimitedHeap()));
+    }
+
+    @Override
+    public int getPdcTagId(PersistentDataContainer pdc, NamespacedKey key) {
+        if (!(pdc instanceof CraftPersistentDataContainer)) return PDC_NOT_SUPPORTED;
+        final Tag tag = ((CraftPersistentDataContainer) pdc).getRaw().get(key.toString());
+        return tag == null ? -1 : tag.getId();
+    }
+
+    @Override
+    public Map<NamespacedKey, Integer> getPdcTagIds(PersistentDataContainer pdc) {
+        if (!(pdc instanceof CraftPersistentDataContainer)) return null;
+        final Map<String, Tag> raw = ((CraftPersistentDataContainer) pdc).getRaw();
+        final Map<NamespacedKey, Integer> tagIds = new HashMap<>(raw.size() * 2);
+        for (final Map.Entry<String, Tag> entry : raw.entrySet()) {
+            final NamespacedKey key = NamespacedKey.fromString(entry.getKey());
+            if (key != null) {
+                tagIds.put(key, (int) entry.getValue().getId());
+            }
+        }
+        return tagIds;
+    }
+
     @Override
     public void respawnPlayer(Player player) {
         getServer().getPlayerList().respawn(toNms(player), true, PlayerRespawnEvent.RespawnReason.PLUGIN);
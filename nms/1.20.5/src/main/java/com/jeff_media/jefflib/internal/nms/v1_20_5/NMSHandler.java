@@ -49,8 +49,15 @@ import com.jeff_media.jefflib.internal.nms.v1_20_5.ai.HatchedMoveController;
 import com.jeff_media.jefflib.internal.nms.v1_20_5.ai.HatchedPathNavigation;
 import com.mojang.authlib.GameProfile;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.serialization.Dynamic;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Predicate;
@@ -66,6 +73,7 @@ import net.minecraft.nbt.NbtIo;
 import net.minecraft.nbt.NbtOps;
 import net.minecraft.nbt.Tag;
 import net.minecraft.nbt.TagParser;
+import net.minecraft.network.RegistryFriendlyByteBuf;
 import net.minecraft.network.chat.Component;
 import net.minecraft.network.protocol.Packet;
 import net.minecraft.network.protocol.game.ClientboundAddEntityPacket;
@@ -76,6 +84,8 @@ import net.minecraft.network.protocol.game.ClientboundSetTimePacket;
 import net.minecraft.network.syncher.SynchedEntityData;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.util.datafix.DataFixers;
+import net.minecraft.util.datafix.fixes.References;
 import net.minecraft.world.entity.AreaEffectCloud;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.PathfinderMob;
@@ -107,7 +117,6 @@ import org.bukkit.entity.Mob;
 import org.bukkit.entity.Player;
 import org.bukkit.event.player.PlayerRespawnEvent;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.persistence.PersistentDataContainer;
 import org.bukkit.util.Vector;
 import org.jetbrains.annotations.NotNull;
@@ -230,13 +239,39 @@ public class NMSHandler implements AbstractNMSHandler {
 
     @Override
     public int getItemStackSizeInBytes(final org.bukkit.inventory.ItemStack itemStack) throws IOException {
-        ByteCounter counter = new ByteCounter();
-        ItemMeta meta = itemStack.getItemMeta();
-        if(meta == null) return NO_DATA;
-        counter.writeBytes(itemStack.getItemMeta().getAsString());
+        final Tag components = getComponentsTag(itemStack);
+        if (components == null) return NO_DATA;
+        final ByteCounter counter = new ByteCounter();
+        components.write(counter);
         return counter.getBytes();
     }
 
+    @Override
+    public int getItemStackSizeUpperBound(final org.bukkit.inventory.ItemStack itemStack) throws IOException {
+        final Tag components = getComponentsTag(itemStack);
+        if (components == null) return NO_DATA;
+        final ByteCounter counter = ByteCounter.upperBound();
+        components.write(counter);
+        return counter.getBytes();
+    }
+
+    @Override
+    public int getItemStackNetworkSize(final org.bukkit.inventory.ItemStack itemStack) {
+        final ByteBuf buffer = Unpooled.buffer();
+        try {
+            net.minecraft.world.item.ItemStack.OPTIONAL_STREAM_CODEC.encode(new RegistryFriendlyByteBuf(buffer, getServer().registryAccess()), CraftItemStack.asNMSCopy(itemStack));
+            return buffer.readableBytes();
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private static Tag getComponentsTag(final org.bukkit.inventory.ItemStack itemStack) {
+        final net.minecraft.world.item.ItemStack nmsItemStack = CraftItemStack.asNMSCopy(itemStack);
+        if (nmsItemStack.isEmpty() || nmsItemStack.getComponentsPatch().isEmpty()) return null;
+        return ((CompoundTag) nmsItemStack.saveOptional(getServer().registryAccess())).get("components");
+    }
+
     @Override
     public String getDefaultWorldName() {
         return ((CraftServer) Bukkit.getServer()).getServer().getProperties().levelName;
@@ -388,6 +423,53 @@ public class NMSHandler implements AbstractNMSHandler {
         ((CraftPersistentDataContainer) target).putAll(tag);
     }
 
+    @Override
+    public void writePdc(PersistentDataContainer pdc, DataOutput out) throws IOException {
+        NbtIo.write(((CraftPersistentDataContainer) pdc).toTagCompound(), out);
+    }
+
+    @Override
+    public void readPdc(DataInput in, PersistentDataContainer target) throws IOException {
+        ((CraftPersistentDataContainer) target).putAll(NbtIo.read(in, NbtAccounter.unlimitedHeap()));
+    }
+
+    @Override
+    public int getPdcTagId(PersistentDataContainer pdc, NamespacedKey key) {
+        if (!(pdc instanceof CraftPersistentDataContainer)) return PDC_NOT_SUPPORTED;
+        final Tag tag = ((CraftPersistentDataContainer) pdc).getRaw().get(key.toString());
+        return tag == null ? -1 : tag.getId();
+    }
+
+    @Override
+    public Map<NamespacedKey, Integer> getPdcTagIds(PersistentDataContainer pdc) {
+        if (!(pdc instanceof CraftPersistentDataContainer)) return null;
+        final Map<String, Tag> raw = ((CraftPersistentDataContainer) pdc).getRaw();
+        final Map<NamespacedKey, Integer> tagIds = new HashMap<>(raw.size() * 2);
+        for (final Map.Entry<String, Tag> entry : raw.entrySet()) {
+            final NamespacedKey key = NamespacedKey.fromString(entry.getKey());
+            if (key != null) {
+                tagIds.put(key, (int) entry.getValue().getId());
+            }
+        }
+        return tagIds;
+    }
+
+    @Override
+    public void writeItemStack(ItemStack itemStack, DataOutput out) throws IOException {
+        final net.minecraft.world.item.ItemStack nmsItemStack = CraftItemStack.asNMSCopy(itemStack);
+        NbtIo.write((CompoundTag) nmsItemStack.saveOptional(getServer().registryAccess()), out);
+    }
+
+    @Override
+    public ItemStack readItemStack(DataInput in, int dataVersion) throws IOException {
+        CompoundTag tag = NbtIo.read(in, NbtAccounter.unlimitedHeap());
+        final int currentDataVersion = CraftMagicNumbers.INSTANCE.getDataVersion();
+        if (dataVersion < currentDataVersion) {
+            tag = (CompoundTag) DataFixers.getDataFixer().update(References.ITEM_STACK, new Dynamic<>(NbtOps.INSTANCE, tag), dataVersion, currentDataVersion).getValue();
+        }
+        return CraftItemStack.asBukkitCopy(net.minecraft.world.item.ItemStack.parseOptional(getServer().registryAccess(), tag));
+    }
+
     @Override
     public void respawnPlayer(Player player) {
         getServer().getPlayerList().respawn(toNms(player), true, PlayerRespawnEvent.RespawnReason.PLUGIN);